@@ -314,6 +314,24 @@ public enum CommandLineAction {
 				"                                         use arm or intel_amd to set it manually\\n" +
 				"                 -dev <on/off>           Set the developer's mode without using ssl \\n" +
 				"                                         certificates. \\n" +
+				"                 -mbe <hornetq/ring>     Set the engine moving messages between\\n" +
+				"                                         microservices, applied on restart\\n" +
+				"                 -as <#MB>               Set the size of message archive segment\\n" +
+				"                                         files\\n" +
+				"                 -acm <on/off>           Set the compression of closed message\\n" +
+				"                                         archive segments\\n" +
+				"                 -ama <#hours>           Set the maximum age of archived messages\\n" +
+				"                                         of a microservice, 0 for no limit\\n" +
+				"                 -apl <#MB>              Set the maximum size of message archive\\n" +
+				"                                         of a microservice, 0 for no limit\\n" +
+				"                 -afs <never/#ms         Set how often archived messages are\\n" +
+				"                     /#records>          forced to the disk\\n" +
+				"                 -mo <backpressure/drop> Set what happens to published messages\\n" +
+				"                                         when receivers run out of memory,\\n" +
+				"                                         drop (default) counts them as dropped,\\n" +
+				"                                         backpressure asks publishers to retry\\n" +
+				"                 -mt <#ms>               Set how long published messages wait\\n" +
+				"                                         for receivers, 0 for no limit\\n" +
 				"\\n" +
 				"\\n" +
 				"Report bugs to: edgemaster@iofog.org\\n" +
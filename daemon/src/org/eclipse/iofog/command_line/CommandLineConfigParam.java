@@ -51,7 +51,15 @@ public enum CommandLineConfigParam {
     GPS_COORDINATES (GpsMode.AUTO.name().toLowerCase(), "gps", "gps", "gpscoordinates"),
     POST_DIAGNOSTICS_FREQ ("10", "df", "post_diagnostics_freq", "postdiagnosticsfreq"),
     FOG_TYPE ("auto", "ft", "fog_type", ""),
-    DEV_MODE ("on", "dev", "dev_mode", "");
+    DEV_MODE ("on", "dev", "dev_mode", ""),
+    MESSAGE_BUS_ENGINE ("hornetq", "mbe", "message_bus_engine", ""),
+    ARCHIVE_SEGMENT_SIZE ("16", "as", "archive_segment_size", ""),
+    ARCHIVE_COMPRESSION ("off", "acm", "archive_compression", ""),
+    ARCHIVE_MAX_AGE ("0", "ama", "archive_max_age", ""),
+    ARCHIVE_PUBLISHER_LIMIT ("0", "apl", "archive_publisher_limit", ""),
+    ARCHIVE_FSYNC ("never", "afs", "archive_fsync", ""),
+    MESSAGE_OVERFLOW ("drop", "mo", "message_overflow", ""),
+    MESSAGE_TTL ("0", "mt", "message_ttl", "");
 
     private final String commandName;
     private final String xmlTag;
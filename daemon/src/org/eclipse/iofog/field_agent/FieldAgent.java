@@ -128,6 +128,7 @@ public class FieldAgent implements IOFogModule {
                 .add("processedMessages", StatusReporter.getMessageBusStatus().getProcessedMessages())
                 .add("microserviceMessageCounts", StatusReporter.getMessageBusStatus().getJsonPublishedMessagesPerMicroservice())
                 .add("messageSpeed", StatusReporter.getMessageBusStatus().getAverageSpeed())
+                .add("messageRates", StatusReporter.getMessageBusStatus().getJsonMessageRates())
                 .add("lastCommandTime", StatusReporter.getFieldAgentStatus().getLastCommandTime())
                 .add("tunnelStatus", StatusReporter.getSshManagerStatus().getJsonProxyStatus())
                 .add("version", VERSION)
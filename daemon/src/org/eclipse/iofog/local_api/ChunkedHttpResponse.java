@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.stream.ChunkedInput;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Http response whose content is produced lazily and sent with chunked transfer encoding
+ */
+public class ChunkedHttpResponse extends DefaultHttpResponse {
+	private final ChunkedInput<ByteBuf> content;
+
+	public ChunkedHttpResponse(HttpResponseStatus status, ChunkedInput<ByteBuf> content) {
+		super(HTTP_1_1, status);
+		this.content = content;
+	}
+
+	public ChunkedInput<ByteBuf> getContent() {
+		return content;
+	}
+}
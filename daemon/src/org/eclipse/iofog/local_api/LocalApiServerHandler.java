@@ -20,6 +20,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.Future;
@@ -127,8 +128,8 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object>{
 		}
 
 		if (request.uri().equals("/v2/messages/next")) {
-			Callable<FullHttpResponse> callable = new MessageReceiverHandler(request, ctx.alloc().buffer(), content);
-			runTask(callable, ctx, request);
+			MessageReceiverHandler handler = new MessageReceiverHandler(request, ctx.alloc().buffer(), content);
+			respond(handler.handle(executor.next(), ctx.channel()), ctx, request);
 			return;
 		}
 
@@ -139,7 +140,8 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object>{
 		}
 
 		if (request.uri().equals("/v2/messages/query")) {
-			Callable<FullHttpResponse> callable = new QueryMessageReceiverHandler(request, ctx.alloc().buffer(), content);
+			Callable<HttpResponse> callable = new QueryMessageReceiverHandler(request, ctx.alloc().buffer(), content,
+					executor.next(), ctx.pipeline().get(ChunkedWriteHandler.class));
 			runTask(callable, ctx, request);
 			return;
 		}
@@ -206,17 +208,45 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object>{
 		ctx.flush();
 	}
 
+	/**
+	 * Method to be called when the channel becomes writable or not writable
+	 * Resumes writing of real-time messages waiting for the message websocket
+	 * @param ctx ChannelHandlerContext
+	 */
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (ctx.channel().isWritable() && WebSocketMap.messageOutboxMap.containsKey(ctx))
+			MessageWebsocketHandler.drainOutbox(ctx);
+		super.channelWritabilityChanged(ctx);
+	}
+
 	/**
 	 * Helper for request thread
 	 * @param callable
 	 * @param ctx
 	 * @param req
 	 */
-	private void runTask(Callable<FullHttpResponse> callable, ChannelHandlerContext ctx, HttpRequest req) {
-		final Future<FullHttpResponse> future = executor.submit(callable);
+	private void runTask(Callable<? extends HttpResponse> callable, ChannelHandlerContext ctx, HttpRequest req) {
+		respond(executor.submit(callable), ctx, req);
+	}
+
+	/**
+	 * Sends the response once it is completed
+	 * nothing is sent if the response has been cancelled
+	 * @param future
+	 * @param ctx
+	 * @param req
+	 */
+	private void respond(Future<? extends HttpResponse> future, ChannelHandlerContext ctx, HttpRequest req) {
 		future.addListener((GenericFutureListener<Future<Object>>) futureListener -> {
+			if (futureListener.isCancelled())
+				return;
 			if (futureListener.isSuccess()) {
-				sendHttpResponse(ctx, req, (FullHttpResponse) futureListener.get());
+				HttpResponse res = (HttpResponse) futureListener.get();
+				if (res instanceof ChunkedHttpResponse)
+					sendChunkedHttpResponse(ctx, req, (ChunkedHttpResponse) res);
+				else
+					sendHttpResponse(ctx, req, (FullHttpResponse) res);
 			} else {
 				ctx.fireExceptionCaught(futureListener.cause());
 				ctx.close();
@@ -243,4 +273,19 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object>{
 			f.addListener(ChannelFutureListener.CLOSE);
 		}
 	}
+
+	/**
+	 * Provide the response whose content is written chunk by chunk
+	 * @param ctx
+	 * @param req
+	 * @param res
+	 */
+	private static void sendChunkedHttpResponse(ChannelHandlerContext ctx, HttpRequest req, ChunkedHttpResponse res) {
+		HttpUtil.setTransferEncodingChunked(res, true);
+		ctx.channel().write(res);
+		ChannelFuture f = ctx.channel().writeAndFlush(new HttpChunkedInput(res.getContent()));
+		if (!HttpUtil.isKeepAlive(req)) {
+			f.addListener(ChannelFutureListener.CLOSE);
+		}
+	}
 }
\ No newline at end of file
@@ -26,13 +26,35 @@ public class MessageCallback {
 		this.name = name;
 	}
 	
+	public String getName() {
+		return name;
+	}
+
 	/**
 	 * Method called from message bus to send real-time messages to the containers
 	 * @param message
 	 * @return void
 	 */
 	public void sendRealtimeMessage(Message message) {
+		sendRealtimeMessage(message.getBytes());
+	}
+
+	/**
+	 * Method called from message bus to send real-time messages to the containers
+	 * Encoded message is forwarded as is, without decoding it
+	 * @param rawMessage
+	 * @return void
+	 */
+	public void sendRealtimeMessage(byte[] rawMessage) {
 		MessageWebsocketHandler handler = new MessageWebsocketHandler();
-		handler.sendRealTimeMessage(name, message);
+		handler.sendRealTimeMessage(name, rawMessage);
+	}
+
+	/**
+	 * Method called from message bus to check how many real-time messages can be sent without dropping any
+	 * @return number of messages
+	 */
+	public int getRoom() {
+		return MessageWebsocketHandler.getRoom(name);
 	}
 }
\ No newline at end of file
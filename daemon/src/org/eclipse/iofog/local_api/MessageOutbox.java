@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.local_api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.message_bus.MessageView;
+import org.eclipse.iofog.message_bus.PriorityLanes;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+
+/**
+ * real-time messages waiting to be written to a message websocket
+ * messages are written while the channel is writable, in {@link PriorityLanes} order,
+ * so a slow receiver gets higher priority messages first and the rest waits here instead of the channel buffer.
+ * when the outbox is full, the oldest message of the lowest priority lane is dropped and counted for its route.
+ * the message bus forwards messages of a receiver as the outbox has room, and is told when room has been made.
+ * messages waiting longer than message TTL since they have been published are not written, but counted as expired
+ *
+ */
+class MessageOutbox {
+	static final int CAPACITY = 4096;
+
+	private final ChannelHandlerContext ctx;
+	private final String receiverId;
+	private final List<ArrayDeque<byte[]>> queues;
+	private final PriorityLanes lanes = new PriorityLanes();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private int size = 0;
+
+	MessageOutbox(ChannelHandlerContext ctx, String receiverId) {
+		this.ctx = ctx;
+		this.receiverId = receiverId;
+		this.queues = new ArrayList<>(PriorityLanes.LANES);
+		for (int lane = 0; lane < PriorityLanes.LANES; lane++)
+			queues.add(new ArrayDeque<>());
+	}
+
+	/**
+	 * adds a message and schedules writing on executor of the channel
+	 *
+	 * @param rawMessage - encoded message
+	 */
+	void offer(byte[] rawMessage) {
+		int lane = PriorityLanes.getLane(rawMessage);
+		synchronized (this) {
+			if (size == CAPACITY && !dropLowest(lane))
+				return;
+			queues.get(lane).add(rawMessage);
+			size++;
+		}
+		if (scheduled.compareAndSet(false, true))
+			ctx.executor().execute(this::drain);
+	}
+
+	/**
+	 * drops the oldest message of the lowest non-empty lane, if it is not above lane,
+	 * and counts it as dropped for route of its publisher to the receiver
+	 *
+	 * @param lane - lane of message to be added
+	 * @return false if there is no message of lower or same priority
+	 */
+	private boolean dropLowest(int lane) {
+		for (int lowest = queues.size() - 1; lowest >= lane; lowest--) {
+			if (!queues.get(lowest).isEmpty()) {
+				byte[] dropped = queues.get(lowest).poll();
+				size--;
+				StatusReporter.setMessageBusStatus()
+						.increaseDroppedMessagesPerRoute(MessageView.wrap(dropped).getPublisher(), receiverId, 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * returns number of messages which can be added without dropping any
+	 *
+	 * @return int
+	 */
+	synchronized int getRoom() {
+		return CAPACITY - size;
+	}
+
+	private synchronized byte[] poll() {
+		int lane = lanes.select(index -> !queues.get(index).isEmpty());
+		if (lane < 0)
+			return null;
+		size--;
+		return queues.get(lane).poll();
+	}
+
+	/**
+	 * writes messages while the channel is writable
+	 * called on executor of the channel when messages are added or the channel becomes writable again
+	 *
+	 */
+	void drain() {
+		scheduled.set(false);
+		Channel channel = ctx.channel();
+		if (!channel.isActive()) {
+			clear();
+			return;
+		}
+		boolean written = false;
+		boolean polled = false;
+		long ttl = Configuration.getMessageTtl();
+		long now = System.currentTimeMillis();
+		byte[] rawMessage;
+		while (channel.isWritable() && (rawMessage = poll()) != null) {
+			polled = true;
+			if (ttl > 0 && now - MessageView.timestamp(rawMessage) > ttl) {
+				StatusReporter.setMessageBusStatus().increaseExpiredMessagesPerMicroservice(receiverId, 1);
+				continue;
+			}
+			WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(rawMessage, 1, System.currentTimeMillis()));
+			channel.write(new BinaryWebSocketFrame(MessageWebsocketHandler.messageFrameContent(ctx, rawMessage)));
+			written = true;
+		}
+		if (written)
+			channel.flush();
+		if (polled)
+			new MessageBusUtil().forwardMessages(receiverId);
+	}
+
+	synchronized void clear() {
+		for (ArrayDeque<byte[]> queue : queues)
+			queue.clear();
+		size = 0;
+	}
+}
@@ -13,7 +13,14 @@
 package org.eclipse.iofog.local_api;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
@@ -22,6 +29,8 @@ import javax.json.*;
 import java.io.StringReader;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.netty.handler.codec.http.HttpMethod.POST;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -30,6 +39,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Handler to deliver the messages to the receiver, if found any.
+ * At most "max" messages are delivered at once. If "wait" is given and no messages
+ * are waiting, the request is parked until messages arrive or "wait" milliseconds
+ * have passed, without holding a thread.
  * 
  * @author ashita
  * @since 2016
@@ -37,10 +49,16 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 
 	private static final String MODULE_NAME = "Local API";
+	private static final long MAX_WAIT = 60_000;
 
 	private final HttpRequest req;
 	private final ByteBuf outputBuffer;
 	private final byte[] content;
+	private final MessageBusUtil bus = new MessageBusUtil();
+
+	private String receiverId;
+	private int max;
+	private long deadline;
 
 	public MessageReceiverHandler(HttpRequest req, ByteBuf outputBuffer, byte[] content) {
 		this.req = req;
@@ -55,6 +73,18 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 	 * @return Object
 	 */
 	private FullHttpResponse handleMessageRecievedRequest() {
+		FullHttpResponse res = parseRequest();
+		if (res != null)
+			return res;
+		return messagesResponse(bus.getMessages(receiverId, max));
+	}
+
+	/**
+	 * Checks and reads the request
+	 *
+	 * @return error response or null if the request is valid
+	 */
+	private FullHttpResponse parseRequest() {
 		HttpHeaders headers = req.headers();
 
 		if (req.method() != POST) {
@@ -82,15 +112,24 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 			return new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST, outputBuffer);
 		}
 
-		String receiverId = jsonObject.getString("id");
+		receiverId = jsonObject.getString("id");
+		max = jsonObject.containsKey("max") ? jsonObject.getInt("max") : Integer.MAX_VALUE;
+		long wait = jsonObject.containsKey("wait") ? Math.min(jsonObject.getJsonNumber("wait").longValue(), MAX_WAIT) : 0;
+		deadline = System.currentTimeMillis() + wait;
+		return null;
+	}
 
+	/**
+	 * Builds response of the messages
+	 *
+	 * @param messageList - list of {@link Message}
+	 * @return FullHttpResponse
+	 */
+	private FullHttpResponse messagesResponse(List<Message> messageList) {
 		JsonBuilderFactory factory = Json.createBuilderFactory(null);
 		JsonObjectBuilder builder = factory.createObjectBuilder();
 		JsonArrayBuilder messagesArray = factory.createArrayBuilder();
 
-		MessageBusUtil bus = new MessageBusUtil();
-		List<Message> messageList = bus.getMessages(receiverId);
-
 		for (Message msg : messageList) {
 			JsonObject msgJson = msg.toJson();
 			messagesArray.add(msgJson);
@@ -118,6 +157,136 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 				jsonObject.isNull("id") ||
 				jsonObject.getString("id").trim().equals(""))
 			throw new Exception(" Id value not found ");
+
+		if (jsonObject.containsKey("max")) {
+			try {
+				if (jsonObject.getInt("max") < 1)
+					throw new Exception();
+			} catch (Exception e) {
+				throw new Exception(" Invalid value of max ");
+			}
+		}
+
+		if (jsonObject.containsKey("wait")) {
+			try {
+				if (jsonObject.getJsonNumber("wait").longValue() < 0)
+					throw new Exception();
+			} catch (Exception e) {
+				throw new Exception(" Invalid value of wait ");
+			}
+		}
+	}
+
+	/**
+	 * Handles the request on executor, parking it while no messages are waiting
+	 * the returned future is cancelled when the channel is closed while the request is parked
+	 *
+	 * @param executor - executor to handle the request on
+	 * @param channel - channel of the request
+	 * @return future of the response
+	 */
+	public Future<FullHttpResponse> handle(EventExecutor executor, Channel channel) {
+		Promise<FullHttpResponse> promise = executor.newPromise();
+		executor.execute(() -> {
+			try {
+				FullHttpResponse res = parseRequest();
+				if (res != null)
+					promise.setSuccess(res);
+				else
+					receive(executor, channel, promise);
+			} catch (Exception e) {
+				promise.tryFailure(e);
+			}
+		});
+		return promise;
+	}
+
+	/**
+	 * Responds with waiting messages, or parks the request until messages arrive or wait has expired
+	 *
+	 * @param executor - executor to handle the request on
+	 * @param channel - channel of the request
+	 * @param promise - promise of the response
+	 */
+	private void receive(EventExecutor executor, Channel channel, Promise<FullHttpResponse> promise) {
+		if (!channel.isActive()) {
+			// messages are left in the mailbox
+			outputBuffer.release();
+			promise.cancel(false);
+			return;
+		}
+		List<Message> messages = bus.getMessages(receiverId, max);
+		long remaining = deadline - System.currentTimeMillis();
+		if (!messages.isEmpty() || remaining <= 0) {
+			promise.trySuccess(messagesResponse(messages));
+			return;
+		}
+		new Parking(executor, channel, promise).park(remaining);
+	}
+
+	/**
+	 * request waiting for messages, woken once by arrival of a message, expiry of wait
+	 * or close of the channel, whichever comes first
+	 *
+	 */
+	private class Parking implements Runnable, ChannelFutureListener {
+		private final EventExecutor executor;
+		private final Channel channel;
+		private final Promise<FullHttpResponse> promise;
+		private final AtomicBoolean parked = new AtomicBoolean(true);
+		private ScheduledFuture<?> timeout;
+
+		Parking(EventExecutor executor, Channel channel, Promise<FullHttpResponse> promise) {
+			this.executor = executor;
+			this.channel = channel;
+			this.promise = promise;
+		}
+
+		void park(long remaining) {
+			if (!bus.awaitMessages(receiverId, this)) {
+				promise.trySuccess(messagesResponse(bus.getMessages(receiverId, max)));
+				return;
+			}
+			timeout = executor.schedule(this::expire, remaining, TimeUnit.MILLISECONDS);
+			channel.closeFuture().addListener(this);
+		}
+
+		private boolean unpark() {
+			if (!parked.compareAndSet(true, false))
+				return false;
+			channel.closeFuture().removeListener(this);
+			return true;
+		}
+
+		/**
+		 * called by message bus as a message arrives
+		 *
+		 */
+		@Override
+		public void run() {
+			if (unpark())
+				executor.execute(() -> {
+					timeout.cancel(false);
+					receive(executor, channel, promise);
+				});
+		}
+
+		private void expire() {
+			if (unpark()) {
+				bus.removeWaiter(receiverId, this);
+				receive(executor, channel, promise);
+			}
+		}
+
+		@Override
+		public void operationComplete(ChannelFuture future) {
+			if (unpark())
+				executor.execute(() -> {
+					timeout.cancel(false);
+					bus.removeWaiter(receiverId, this);
+					receive(executor, channel, promise);
+				});
+		}
 	}
 
 	/**
@@ -129,4 +298,4 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 	public FullHttpResponse call() throws Exception {
 		return handleMessageRecievedRequest();
 	}
-}
\ No newline at end of file
+}
@@ -89,6 +89,15 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 			outputBuffer.writeBytes(errorMsg.getBytes(UTF_8));
 			return new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST, outputBuffer);
 		}
+
+		long retryAfter = bus.getRetryAfter(message);
+		if (retryAfter > 0) {
+			String errorMsg = " Receivers are out of memory, retry after " + retryAfter + " ms ";
+			outputBuffer.writeBytes(errorMsg.getBytes(UTF_8));
+			FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.TOO_MANY_REQUESTS, outputBuffer);
+			res.headers().set(HttpHeaderNames.RETRY_AFTER, (retryAfter + 999) / 1000);
+			return res;
+		}
 		bus.publishMessage(message);
 
 		JsonBuilderFactory factory = Json.createBuilderFactory(null);
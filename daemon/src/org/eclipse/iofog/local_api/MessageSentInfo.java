@@ -20,14 +20,14 @@ import org.eclipse.iofog.message_bus.Message;
  * @since 2016
  */
 public class MessageSentInfo {
-	private Message message;
+	private byte[] rawMessage;
 	private int sendTryCount = 0;
 	private long timeMillis;
 	
 	
 
-	MessageSentInfo(Message message, int count, long timeMillis){
-		this.message = message;
+	MessageSentInfo(byte[] rawMessage, int count, long timeMillis){
+		this.rawMessage = rawMessage;
 		this.sendTryCount = count;
 		this.timeMillis = timeMillis;
 	}
@@ -42,10 +42,11 @@ public class MessageSentInfo {
 	
 	/**
 	 * Get message
+	 * Message is decoded from the raw bytes only when asked for
 	 * @return Message
 	 */
 	public Message getMessage() {
-		return message;
+		return new Message(rawMessage);
 	}
 	
 	/**
@@ -54,7 +55,15 @@ public class MessageSentInfo {
 	 * @return void
 	 */
 	public void setMessage(Message message) {
-		this.message = message;
+		this.rawMessage = message.getBytes();
+	}
+
+	/**
+	 * Get message bytes as received from message bus
+	 * @return byte[]
+	 */
+	public byte[] getRawMessage() {
+		return rawMessage;
 	}
 	
 	/**
@@ -20,11 +20,12 @@ import java.util.Map;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBus;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.message_bus.MessageView;
 import org.eclipse.iofog.status_reporter.StatusReporter;
-import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
@@ -50,6 +51,7 @@ public class MessageWebsocketHandler {
 	private static final Byte OPCODE_ACK = 0xB;
 	private static final Byte OPCODE_MSG = 0xD;
 	private static final Byte OPCODE_RECEIPT = 0xE;
+	private static final Byte OPCODE_THROTTLE = 0xF;
 
 	private static final String WEBSOCKET_PATH = "/v2/message/socket";
 
@@ -123,26 +125,23 @@ public class MessageWebsocketHandler {
 				return;
 			}
 
-			byte[] byteArray = new byte[input.readableBytes()];
 			int readerIndex = input.readerIndex();
-			input.getBytes(readerIndex, byteArray);
-			Byte opcode;
-
-			if(byteArray.length >= 1){
-				opcode = byteArray[0];
-			}else{
-				return;
-			}
+			Byte opcode = input.getByte(readerIndex);
 
 			if (opcode == OPCODE_MSG.intValue()) {
-				if (byteArray.length >= 2) {
+				if (input.readableBytes() >= 5) {
 					if (WebsocketUtil.hasContextInMap(ctx, WebSocketMap.messageWebsocketMap)) {
 
-						int totalMsgLength = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(byteArray, 1, 5));
+						int totalMsgLength = input.getInt(readerIndex + 1);
 						try {
-							Message message = new Message(BytesUtil.copyOfRange(byteArray, 5, totalMsgLength + 5));
+							Message message = new MessageView(input.slice(readerIndex + 5, totalMsgLength)).toMessage();
 
 							MessageBusUtil messageBus = new MessageBusUtil();
+							long retryAfter = messageBus.getRetryAfter(message);
+							if (retryAfter > 0) {
+								sendThrottle(ctx, retryAfter);
+								return;
+							}
 							messageBus.publishMessage(message);
 
 							String messageId = message.getId();
@@ -158,7 +157,7 @@ public class MessageWebsocketHandler {
 
 							// Send opcode, id and timestamp
 							buffer1.writeBytes(messageId.getBytes(UTF_8));
-							buffer1.writeBytes(BytesUtil.longToBytes(msgTimestamp));
+							buffer1.writeLong(msgTimestamp);
 							ctx.channel().write(new BinaryWebSocketFrame(buffer1));
 						} catch (Exception e) {
 							LoggingService.logInfo(MODULE_NAME, "wrong message format  " + e.getMessage());
@@ -181,10 +180,25 @@ public class MessageWebsocketHandler {
 			MessageBus.getInstance()
 			.disableRealTimeReceiving(WebsocketUtil.getIdForWebsocket(ctx, WebSocketMap.messageWebsocketMap));
 			WebsocketUtil.removeWebsocketContextFromMap(ctx, WebSocketMap.messageWebsocketMap);
+			removeOutbox(ctx);
 			StatusReporter.setLocalApiStatus().setOpenConfigSocketsCount(WebSocketMap.messageWebsocketMap.size());
 		}
 	}
 
+	/**
+	 * Tells publisher that the message has not been published, because receivers are out of memory
+	 * Frame holds opcode and milliseconds to wait before sending again
+	 * 
+	 * @param ctx, retryAfter
+	 * @return void
+	 */
+	private static void sendThrottle(ChannelHandlerContext ctx, long retryAfter) {
+		ByteBuf buffer = ctx.alloc().buffer(1 + Integer.BYTES);
+		buffer.writeByte(OPCODE_THROTTLE.intValue());
+		buffer.writeInt((int) retryAfter);
+		ctx.channel().write(new BinaryWebSocketFrame(buffer));
+	}
+
 	/**
 	 * Helper to send real-time messages
 	 * 
@@ -192,32 +206,85 @@ public class MessageWebsocketHandler {
 	 * @return void
 	 */
 	public void sendRealTimeMessage(String receiverId, Message message) {
+		sendRealTimeMessage(receiverId, message.getBytes());
+	}
+
+	/**
+	 * Helper to send real-time messages
+	 * Messages wait in {@link MessageOutbox} of the websocket until the channel is writable
+	 * Encoded message bytes are wrapped into the frame without copying
+	 * 
+	 * @param receiverId, rawMessage
+	 * @return void
+	 */
+	public void sendRealTimeMessage(String receiverId, byte[] rawMessage) {
 		ChannelHandlerContext ctx;
 		Map<String, ChannelHandlerContext> messageSocketMap = WebSocketMap.messageWebsocketMap;
 
 		if (messageSocketMap != null && messageSocketMap.containsKey(receiverId)) {
 			ctx = messageSocketMap.get(receiverId);
-			WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(message, 1, System.currentTimeMillis()));
-
-			int totalMsgLength;
-			byte[] bytesMsg = message.getBytes();
-
-			totalMsgLength = bytesMsg.length;
-
-			ByteBuf buffer1 = ctx.alloc().buffer(totalMsgLength + 5);
-			// Send Opcode
-			buffer1.writeByte(OPCODE_MSG);
-			// Total Length
-			buffer1.writeBytes(BytesUtil.integerToBytes(totalMsgLength));
-			// Message
-			buffer1.writeBytes(bytesMsg);
-			ctx.channel().writeAndFlush(new BinaryWebSocketFrame(buffer1));
+			WebSocketMap.messageOutboxMap.computeIfAbsent(ctx, key -> new MessageOutbox(key, receiverId)).offer(rawMessage);
 		} else {
 			LoggingService.logWarning(MODULE_NAME, "No active real-time websocket found for " + receiverId);
 		}
 
 	}
 
+	/**
+	 * Helper to check free space of {@link MessageOutbox} of a receiver
+	 * Without an active websocket messages are not kept, so there is no limit
+	 * 
+	 * @param receiverId
+	 * @return number of messages
+	 */
+	static int getRoom(String receiverId) {
+		ChannelHandlerContext ctx = WebSocketMap.messageWebsocketMap.get(receiverId);
+		if (ctx == null)
+			return Integer.MAX_VALUE;
+		MessageOutbox outbox = WebSocketMap.messageOutboxMap.get(ctx);
+		return outbox == null ? MessageOutbox.CAPACITY : outbox.getRoom();
+	}
+
+	/**
+	 * Writes waiting real-time messages when the channel becomes writable again
+	 * 
+	 * @param ctx
+	 * @return void
+	 */
+	static void drainOutbox(ChannelHandlerContext ctx) {
+		MessageOutbox outbox = WebSocketMap.messageOutboxMap.get(ctx);
+		if (outbox != null)
+			outbox.drain();
+	}
+
+	/**
+	 * Discards real-time messages waiting for a closed websocket
+	 * 
+	 * @param ctx
+	 * @return void
+	 */
+	static void removeOutbox(ChannelHandlerContext ctx) {
+		MessageOutbox outbox = WebSocketMap.messageOutboxMap.remove(ctx);
+		if (outbox != null)
+			outbox.clear();
+	}
+
+	/**
+	 * Builds real-time message frame content: opcode, total length and message
+	 * 
+	 * @param ctx, rawMessage
+	 * @return ByteBuf
+	 */
+	static ByteBuf messageFrameContent(ChannelHandlerContext ctx, byte[] rawMessage) {
+		ByteBuf header = ctx.alloc().buffer(5);
+		// Send Opcode
+		header.writeByte(OPCODE_MSG);
+		// Total Length
+		header.writeInt(rawMessage.length);
+		// Message
+		return Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(rawMessage));
+	}
+
 	/**
 	 * Websocket path
 	 * 
@@ -14,10 +14,8 @@ package org.eclipse.iofog.local_api;
 
 import java.util.Map;
 
-import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBus;
 import org.eclipse.iofog.status_reporter.StatusReporter;
-import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import io.netty.buffer.ByteBuf;
@@ -32,7 +30,6 @@ import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
  */
 public class MessageWebsocketWorker implements Runnable{
 	private static final String MODULE_NAME = "Local API";
-	private static final Byte OPCODE_MSG = 0xD;
 //	private static int count = 0;
 	
 	/**
@@ -59,6 +56,7 @@ public class MessageWebsocketWorker implements Runnable{
 					WebSocketMap.unackMessageSendingMap.remove(ctx);
 					MessageBus.getInstance().disableRealTimeReceiving(WebsocketUtil.getIdForWebsocket(ctx, WebSocketMap.messageWebsocketMap));
 					WebsocketUtil.removeWebsocketContextFromMap(ctx, WebSocketMap.messageWebsocketMap);	
+					MessageWebsocketHandler.removeOutbox(ctx);
 					StatusReporter.setLocalApiStatus().setOpenConfigSocketsCount(WebSocketMap.messageWebsocketMap.size());
 					return;
 				}
@@ -74,20 +72,10 @@ public class MessageWebsocketWorker implements Runnable{
 //		count++;
 		MessageSentInfo messageContextAndCount = WebSocketMap.unackMessageSendingMap.get(ctx);
 		int tryCount = messageContextAndCount.getSendTryCount();
-		Message message = messageContextAndCount.getMessage();
+		byte[] rawMessage = messageContextAndCount.getRawMessage();
 		tryCount = tryCount + 1;
-		WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(message, tryCount, System.currentTimeMillis()));
-		ByteBuf buffer1 = ctx.alloc().buffer();
-
-		//Send Opcode
-		buffer1.writeByte(OPCODE_MSG);
-
-		byte[] bytesMsg = message.getBytes();
-		int totalMsgLength = bytesMsg.length;
-		//Total Length
-		buffer1.writeBytes(BytesUtil.integerToBytes(totalMsgLength));
-		//Message
-		buffer1.writeBytes(bytesMsg);
+		WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(rawMessage, tryCount, System.currentTimeMillis()));
+		ByteBuf buffer1 = MessageWebsocketHandler.messageFrameContent(ctx, rawMessage);
 		ctx.channel().writeAndFlush(new BinaryWebSocketFrame(buffer1));
 	}
 }
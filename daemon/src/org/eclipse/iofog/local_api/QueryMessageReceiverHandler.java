@@ -13,15 +13,26 @@
 package org.eclipse.iofog.local_api;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.EventExecutor;
+import org.eclipse.iofog.message_bus.ArchiveCursor;
+import org.eclipse.iofog.message_bus.ArchiveFilter;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import javax.json.*;
+import javax.json.stream.JsonGenerator;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import static io.netty.handler.codec.http.HttpMethod.POST;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -31,21 +42,34 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /**
  * Handler to deliver the messages to the receiver, if found any. Messages are
  * delivered for the particular query from the receiver.
+ * Messages are read from the archive on the local API executor while the response is being sent in chunks.
+ * If limit is reached, response contains continuation token to query the rest.
+ * Messages may be filtered by tag, groupid, infotype and infoformat.
  * 
  * @author ashita
  * @since 2016
  */
-public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
+public class QueryMessageReceiverHandler implements Callable<HttpResponse> {
 	private static final String MODULE_NAME = "Local API";
+	private static final int CHUNK_SIZE = 64 * 1024;
 
 	private final HttpRequest req;
 	private final ByteBuf outputBuffer;
 	private final byte[] content;
+	private final EventExecutor executor;
+	private final ChunkedWriteHandler writer;
 
-	public QueryMessageReceiverHandler(HttpRequest req, ByteBuf outputBuffer, byte[] content) {
+	/**
+	 * @param executor - executor reading messages from the archive while the response is being sent
+	 * @param writer - {@link ChunkedWriteHandler} of the request channel
+	 */
+	public QueryMessageReceiverHandler(HttpRequest req, ByteBuf outputBuffer, byte[] content, EventExecutor executor,
+			ChunkedWriteHandler writer) {
 		this.req = req;
 		this.outputBuffer = outputBuffer;
 		this.content = content;
+		this.executor = executor;
+		this.writer = writer;
 	}
 
 	/**
@@ -54,7 +78,7 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 	 *
 	 * @return Object
 	 */
-	private FullHttpResponse handleQueryMessageRequest() {
+	private HttpResponse handleQueryMessageRequest() {
 		HttpHeaders headers = req.headers();
 
 		if (req.method() != POST) {
@@ -85,43 +109,48 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 		String receiverId = jsonObject.getString("id");
 		long timeframeStart = Long.parseLong(jsonObject.get("timeframestart").toString());
 		long timeframeEnd = Long.parseLong(jsonObject.get("timeframeend").toString());
-		long actualTimeframeEnd = timeframeEnd;
+		int limit = jsonObject.containsKey("limit") ? jsonObject.getInt("limit") : Integer.MAX_VALUE;
+		String continuationToken = jsonObject.getString("continuationtoken", null);
+		ArchiveFilter filter = new ArchiveFilter(jsonObject.getString("tag", null), jsonObject.getString("groupid", null),
+				jsonObject.getString("infotype", null), jsonObject.getString("infoformat", null));
 		
 		JsonArray publishersArray = jsonObject.getJsonArray("publishers");
 
-		JsonBuilderFactory factory = Json.createBuilderFactory(null);
-		JsonObjectBuilder builder = factory.createObjectBuilder();
-		JsonArrayBuilder messagesArray = factory.createArrayBuilder();
-
 		MessageBusUtil bus = new MessageBusUtil();
-		int msgCount = 0;
-
-		for (int i = 0; i < publishersArray.size(); i++) {
-			String publisherId = publishersArray.getString(i);
-
-			List<Message> messageList = bus.messageQuery(publisherId, receiverId, timeframeStart, timeframeEnd);
+		List<String> publishers = new ArrayList<>();
+		List<ArchiveCursor> cursors = new ArrayList<>();
+		try {
+			for (int i = 0; i < publishersArray.size(); i++) {
+				String publisherId = publishersArray.getString(i);
+				String cursorToken = null;
+				if (continuationToken != null) {
+					// publishers before the one in continuation token have been sent
+					if (!continuationToken.startsWith(publisherId + ":"))
+						continue;
+					cursorToken = continuationToken.substring(publisherId.length() + 1);
+					continuationToken = null;
+				}
 
-			if (messageList != null) {
-				for (Message msg : messageList) {
-					JsonObject msgJson = msg.toJson();
-					messagesArray.add(msgJson);
-					msgCount++;
+				ArchiveCursor cursor = bus.messageQuery(publisherId, receiverId, timeframeStart, timeframeEnd, filter, cursorToken);
+				if (cursor != null) {
+					publishers.add(publisherId);
+					cursors.add(cursor);
 				}
-				
-				actualTimeframeEnd = messageList.get(messageList.size()-1).getTimestamp();
 			}
+			if (continuationToken != null)
+				throw new IllegalArgumentException("invalid continuation token");
+		} catch (IllegalArgumentException e) {
+			String errorMsg = "Incorrect input content/data Error: " + e.getMessage();
+			LoggingService.logWarning(MODULE_NAME, errorMsg);
+			outputBuffer.writeBytes(errorMsg.getBytes(UTF_8));
+			return new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST, outputBuffer);
 		}
 
-		builder.add("status", "okay");
-		builder.add("count", msgCount);
-		builder.add("timeframestart", timeframeStart);
-		builder.add("timeframeend", actualTimeframeEnd);
-		builder.add("messages", messagesArray);
-
-		String result = builder.build().toString();
-		outputBuffer.writeBytes(result.getBytes(UTF_8));
-		FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, OK, outputBuffer);
-		HttpUtil.setContentLength(res, outputBuffer.readableBytes());
+		ByteBufAllocator allocator = outputBuffer.alloc();
+		outputBuffer.release();
+		ChunkedHttpResponse res = new ChunkedHttpResponse(OK, new MessagesInput(publishers, cursors, timeframeStart, timeframeEnd, limit,
+				allocator, executor, writer::resumeTransfer));
+		res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
 		return res;
 	}
 
@@ -161,6 +190,22 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 
 		if ((message.getString("id").trim().equals("")))
 			throw new Exception("Error: Missing input field value id");
+
+		if (message.containsKey("limit")) {
+			try {
+				if (message.getInt("limit") < 1)
+					throw new Exception();
+			} catch (Exception e) {
+				throw new Exception("Error: Invalid value of limit");
+			}
+		}
+
+		if (message.containsKey("continuationtoken") && message.get("continuationtoken").getValueType() != JsonValue.ValueType.STRING)
+			throw new Exception("Error: Invalid value of continuationtoken");
+
+		for (String field : new String[] { "tag", "groupid", "infotype", "infoformat" })
+			if (message.containsKey(field) && message.get(field).getValueType() != JsonValue.ValueType.STRING)
+				throw new Exception("Error: Invalid value of " + field);
 	}
 
 	/**
@@ -169,7 +214,214 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 	 * @return Object
 	 */
 	@Override
-	public FullHttpResponse call() {
+	public HttpResponse call() {
 		return handleQueryMessageRequest();
 	}
+
+	/**
+	 * Writes json response while reading messages from cursors
+	 * each chunk holds messages of about {@link #CHUNK_SIZE} bytes.
+	 * Chunks are read from the archive on the local API executor, one chunk ahead of the channel,
+	 * so reading from the disk does not block the event loop. Until the next chunk is ready
+	 * readChunk returns null and the transfer is resumed once the chunk has been read.
+	 */
+	static class MessagesInput implements ChunkedInput<ByteBuf> {
+		private final List<String> publishers;
+		private final List<ArchiveCursor> cursors;
+		private final long timeframeStart;
+		private final int limit;
+		private final ByteBufAllocator allocator;
+		private final Executor executor;
+		private final Runnable resumeTransfer;
+		private final ChunkOutputStream output = new ChunkOutputStream();
+		private final JsonGenerator generator = Json.createGenerator(output);
+		private int publisherIndex = 0;
+		private int count = 0;
+		private long actualTimeframeEnd;
+		private boolean started = false;
+
+		// guarded by this, shared by the event loop and the executor
+		private ByteBuf ready;
+		private Exception failure;
+		private long progress = 0;
+		private boolean reading = false;
+		private boolean finished = false;
+		private boolean closed = false;
+
+		/**
+		 * @param allocator - allocator of chunks
+		 * @param executor - executor reading chunks from the archive
+		 * @param resumeTransfer - resumes writing chunks to the channel, when a chunk is ready
+		 */
+		MessagesInput(List<String> publishers, List<ArchiveCursor> cursors, long timeframeStart, long timeframeEnd, int limit,
+				ByteBufAllocator allocator, Executor executor, Runnable resumeTransfer) {
+			this.publishers = publishers;
+			this.cursors = cursors;
+			this.timeframeStart = timeframeStart;
+			this.limit = limit;
+			this.actualTimeframeEnd = timeframeEnd;
+			this.allocator = allocator;
+			this.executor = executor;
+			this.resumeTransfer = resumeTransfer;
+		}
+
+		@Override
+		public synchronized boolean isEndOfInput() {
+			return closed || (finished && ready == null && failure == null);
+		}
+
+		@Override
+		public synchronized void close() {
+			closed = true;
+			if (ready != null) {
+				ready.release();
+				ready = null;
+			}
+		}
+
+		@Override
+		@Deprecated
+		public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+			return readChunk(ctx.alloc());
+		}
+
+		/**
+		 * returns chunk read ahead and starts reading the next one
+		 *
+		 * @param allocator - not used, chunks are allocated by allocator of the request channel
+		 * @return chunk or null if the next chunk is not ready yet
+		 * @throws Exception if reading from the archive has failed
+		 */
+		@Override
+		public synchronized ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+			if (failure != null)
+				throw failure;
+			if (closed)
+				return null;
+			ByteBuf chunk = ready;
+			ready = null;
+			if (!reading && !finished) {
+				reading = true;
+				executor.execute(this::readAhead);
+			}
+			if (chunk != null)
+				progress += chunk.readableBytes();
+			return chunk;
+		}
+
+		/**
+		 * reads the next chunk on the executor and resumes the transfer
+		 *
+		 */
+		private void readAhead() {
+			ByteBuf chunk = null;
+			Exception error = null;
+			try {
+				chunk = read();
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, "unable to read messages --> " + e.getMessage());
+				error = e;
+			}
+			synchronized (this) {
+				reading = false;
+				if (closed) {
+					if (chunk != null)
+						chunk.release();
+					return;
+				}
+				ready = chunk;
+				failure = error;
+			}
+			resumeTransfer.run();
+		}
+
+		private ByteBuf read() {
+			ByteBuf chunk = allocator.buffer(CHUNK_SIZE);
+			try {
+				output.setBuffer(chunk);
+				if (!started) {
+					generator.writeStartObject()
+							.write("status", "okay")
+							.write("timeframestart", timeframeStart)
+							.writeStartArray("messages");
+					started = true;
+				}
+
+				while (chunk.readableBytes() < CHUNK_SIZE) {
+					ArchiveCursor cursor = nextCursor();
+					if (cursor == null || count == limit) {
+						finish(cursor);
+						break;
+					}
+					Message message = cursor.next();
+					generator.write(message.toJson());
+					generator.flush();
+					actualTimeframeEnd = message.getTimestamp();
+					count++;
+				}
+				return chunk;
+			} catch (RuntimeException e) {
+				chunk.release();
+				throw e;
+			}
+		}
+
+		/**
+		 * returns cursor of the next message
+		 *
+		 * @return {@link ArchiveCursor} or null if all messages have been sent
+		 */
+		private ArchiveCursor nextCursor() {
+			for (; publisherIndex < cursors.size(); publisherIndex++) {
+				ArchiveCursor cursor = cursors.get(publisherIndex);
+				if (cursor.hasNext())
+					return cursor;
+			}
+			return null;
+		}
+
+		private void finish(ArchiveCursor cursor) {
+			generator.writeEnd()
+					.write("count", count)
+					.write("timeframeend", actualTimeframeEnd);
+			if (cursor != null)
+				generator.write("continuationtoken", publishers.get(publisherIndex) + ":" + cursor.getContinuationToken());
+			generator.writeEnd();
+			generator.close();
+			synchronized (this) {
+				finished = true;
+			}
+		}
+
+		@Override
+		public long length() {
+			return -1;
+		}
+
+		@Override
+		public synchronized long progress() {
+			return progress;
+		}
+	}
+
+	/**
+	 * Output stream writing to the current chunk
+	 */
+	private static class ChunkOutputStream extends OutputStream {
+		private ByteBuf buffer;
+
+		void setBuffer(ByteBuf buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(int b) {
+			buffer.writeByte(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			buffer.writeBytes(b, off, len);
+		}
+	}
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ public final class WebSocketMap {
 	
 	static final Map<ChannelHandlerContext, MessageSentInfo> unackMessageSendingMap = new ConcurrentHashMap<>();
 	static final Map<ChannelHandlerContext, ControlSignalSentInfo> unackControlSignalsMap = new ConcurrentHashMap<>();
+	static final Map<ChannelHandlerContext, MessageOutbox> messageOutboxMap = new ConcurrentHashMap<>();
 
 
 
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * in-memory catalog of archive segments of every publisher
+ * keeps time range, number of records and size of each segment,
+ * so queries, retention and disk accounting do not list the archive directory.
+ * the directory is scanned only once, then the catalog is updated when segments are appended, closed and removed.
+ *
+ */
+public class ArchiveCatalog {
+	private static final String MODULE_NAME = "Archive Catalog";
+
+	private static volatile ArchiveCatalog instance;
+
+	private final Map<String, Archive> archives = new HashMap<>();
+	private long totalBytes = 0;
+	private boolean loaded = false;
+
+	private ArchiveCatalog() {
+	}
+
+	public static ArchiveCatalog getInstance() {
+		if (instance == null) {
+			synchronized (ArchiveCatalog.class) {
+				if (instance == null)
+					instance = new ArchiveCatalog();
+			}
+		}
+		return instance;
+	}
+
+	private void load() {
+		if (loaded)
+			return;
+		loaded = true;
+		long start = System.currentTimeMillis();
+		File directory = new File(Configuration.getDiskDirectory() + "messages/archive/");
+		File[] indexFiles = directory.listFiles((dir, fileName) -> fileName.endsWith(".idx") && fileName.lastIndexOf('_') > 0);
+		if (indexFiles == null)
+			return;
+		for (File indexFile : indexFiles) {
+			try {
+				measure(add(indexFile));
+			} catch (NumberFormatException e) {
+				LoggingService.logWarning(MODULE_NAME, "invalid archive file name " + indexFile.getName());
+			}
+		}
+		LoggingService.logInfo(MODULE_NAME, "loaded " + indexFiles.length + " archive segments in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private Segment add(File indexFile) {
+		String fileName = indexFile.getName();
+		long timestamp = ArchiveCursor.getSegmentTimestamp(indexFile);
+		Archive archive = archives.computeIfAbsent(fileName.substring(0, fileName.lastIndexOf('_')), key -> new Archive());
+		return archive.segments.computeIfAbsent(timestamp, key -> new Segment(indexFile, timestamp));
+	}
+
+	/**
+	 * reads number of records, time range and size of segment from its files
+	 *
+	 * @param segment - {@link Segment}
+	 */
+	private void measure(Segment segment) {
+		try {
+			ArchiveSegment.Reader reader = new ArchiveSegment.Reader(segment.indexFile, segment.indexFile.length());
+			long[] timeRange = reader.getTimeRange();
+			segment.records = reader.size();
+			segment.first = timeRange[0];
+			segment.last = timeRange[1];
+		} catch (Exception e) {
+			// segment is kept to be removed by retention, but it is never queried
+			LoggingService.logWarning(MODULE_NAME, "unable to read " + segment.indexFile.getName() + " --> " + e.getMessage());
+			segment.records = 0;
+			segment.first = Long.MAX_VALUE;
+			segment.last = Long.MIN_VALUE;
+		}
+		setBytes(segment, ArchiveSegment.size(segment.indexFile));
+	}
+
+	private void setBytes(Segment segment, long bytes) {
+		Archive archive = archives.get(segment.getPublisher());
+		if (archive != null && archive.segments.get(segment.timestamp) == segment) {
+			archive.bytes += bytes - segment.bytes;
+			totalBytes += bytes - segment.bytes;
+		}
+		segment.bytes = bytes;
+	}
+
+	/**
+	 * returns the newest segment of publisher
+	 *
+	 * @param publisher - publisher id
+	 * @return {@link Segment} or null
+	 */
+	synchronized Segment getLastSegment(String publisher) {
+		load();
+		Archive archive = archives.get(publisher);
+		return archive == null || archive.segments.isEmpty() ? null : archive.segments.lastEntry().getValue();
+	}
+
+	/**
+	 * registers a segment opened for appending
+	 *
+	 * @param indexFile - index file of segment
+	 * @return {@link Segment}
+	 */
+	synchronized Segment segmentOpened(File indexFile) {
+		load();
+		return add(indexFile);
+	}
+
+	/**
+	 * updates a segment being appended
+	 *
+	 * @param segment - {@link Segment}
+	 * @param records - number of records
+	 * @param first - minimum timestamp of appended records
+	 * @param last - maximum timestamp of appended records
+	 * @param bytes - size of segment content
+	 */
+	synchronized void segmentAppended(Segment segment, int records, long first, long last, long bytes) {
+		segment.records = records;
+		segment.first = Math.min(segment.first, first);
+		segment.last = Math.max(segment.last, last);
+		setBytes(segment, bytes);
+	}
+
+	/**
+	 * measures a segment again after it has been closed, recovered or compressed
+	 *
+	 * @param indexFile - index file of segment
+	 */
+	synchronized void segmentChanged(File indexFile) {
+		load();
+		if (indexFile.exists())
+			measure(add(indexFile));
+	}
+
+	/**
+	 * removes the oldest segment of an archive and its files
+	 * must be called while holding the catalog lock
+	 *
+	 * @param archive - {@link Archive}
+	 */
+	void removeOldest(Archive archive) {
+		Segment segment = archive.segments.pollFirstEntry().getValue();
+		ArchiveSegment.delete(segment.indexFile);
+		archive.bytes -= segment.bytes;
+		totalBytes -= segment.bytes;
+	}
+
+	/**
+	 * returns archives of all publishers
+	 * must be called while holding the catalog lock
+	 *
+	 * @return collection of {@link Archive}
+	 */
+	Collection<Archive> getArchives() {
+		load();
+		archives.values().removeIf(archive -> archive.segments.isEmpty());
+		return archives.values();
+	}
+
+	/**
+	 * returns index files of segments of publisher, which may hold {@link Message} within the time frame
+	 *
+	 * @param publisher - publisher id
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @return list of index files ordered by segment timestamp
+	 */
+	synchronized List<File> getSegmentFiles(String publisher, long from, long to) {
+		load();
+		List<File> result = new ArrayList<>();
+		Archive archive = archives.get(publisher);
+		if (archive == null)
+			return result;
+		for (Segment segment : archive.segments.values())
+			if (segment.records > 0 && segment.first <= to && segment.last >= from)
+				result.add(segment.indexFile);
+		return result;
+	}
+
+	/**
+	 * returns disk space used by archives of all publishers
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getTotalBytes() {
+		load();
+		return totalBytes;
+	}
+
+	static class Archive {
+		private final TreeMap<Long, Segment> segments = new TreeMap<>();
+		private long bytes = 0;
+
+		TreeMap<Long, Segment> getSegments() {
+			return segments;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+	}
+
+	static class Segment {
+		private final File indexFile;
+		private final long timestamp;
+		private int records = 0;
+		private long first = Long.MAX_VALUE;
+		private long last = Long.MIN_VALUE;
+		private long bytes = 0;
+
+		Segment(File indexFile, long timestamp) {
+			this.indexFile = indexFile;
+			this.timestamp = timestamp;
+		}
+
+		private String getPublisher() {
+			String fileName = indexFile.getName();
+			return fileName.substring(0, fileName.lastIndexOf('_'));
+		}
+
+		File getIndexFile() {
+			return indexFile;
+		}
+
+		long getLast() {
+			return last;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import io.netty.buffer.ByteBuf;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.COMPRESSED_HEADER_SIZE;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.COMPRESSED_MAGIC;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.FORMAT_VERSION;
+
+/**
+ * compresses data files of closed archive segments in background
+ * data is split into blocks of whole records, each block is deflated separately
+ * and block table maps data positions to compressed blocks, so a query inflates only blocks it reads.
+ * index and time index files are not changed.
+ *
+ */
+class ArchiveCompressor {
+	private static final String MODULE_NAME = "Archive Compressor";
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	private static volatile ArchiveCompressor instance;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "MessageBus : ArchiveCompressor");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	private ArchiveCompressor() {
+	}
+
+	static ArchiveCompressor getInstance() {
+		if (instance == null) {
+			synchronized (ArchiveCompressor.class) {
+				if (instance == null)
+					instance = new ArchiveCompressor();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * queues closed segment to be compressed
+	 *
+	 * @param indexFile - index file of segment
+	 */
+	void submit(File indexFile) {
+		executor.execute(() -> {
+			try {
+				compress(indexFile);
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, "unable to compress " + indexFile.getName() + " --> " + e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * writes compressed data file and replaces the raw one
+	 *
+	 * @param indexFile - index file of segment
+	 * @throws IOException
+	 */
+	void compress(File indexFile) throws IOException {
+		File dataFile = ArchiveSegment.getDataFile(indexFile);
+		File compressedDataFile = ArchiveSegment.getCompressedDataFile(indexFile);
+		if (!indexFile.exists() || !dataFile.exists() || compressedDataFile.exists())
+			return;
+
+		long start = System.currentTimeMillis();
+		ArchiveSegment.Reader reader = new ArchiveSegment.Reader(indexFile, indexFile.length());
+		if (reader.size() == 0)
+			return;
+
+		// blocks hold whole records, so data of a record is never split
+		List<Long> blockStarts = new ArrayList<>();
+		long blockStart = reader.getDataPosition(0);
+		blockStarts.add(blockStart);
+		long dataEnd = blockStart;
+		for (int record = 0; record < reader.size(); record++) {
+			long position = reader.getDataPosition(record);
+			if (position != dataEnd)
+				throw new IOException("records are not contiguous");
+			if (position - blockStart >= BLOCK_SIZE) {
+				blockStart = position;
+				blockStarts.add(blockStart);
+			}
+			dataEnd = position + reader.getDataSize(record);
+		}
+		blockStarts.add(dataEnd);
+
+		int blocks = blockStarts.size() - 1;
+		long tableSize = (long) (blocks + 1) * 2 * Long.BYTES;
+		ByteBuffer table = ByteBuffer.allocate((int) (COMPRESSED_HEADER_SIZE + tableSize));
+		table.putInt(COMPRESSED_MAGIC).putInt(FORMAT_VERSION).putInt(blocks);
+
+		File tempFile = new File(compressedDataFile.getPath() + ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+			long compressedPosition = table.capacity();
+			channel.position(compressedPosition);
+			byte[] input = new byte[BLOCK_SIZE];
+			byte[] output = new byte[BLOCK_SIZE];
+			for (int block = 0; block < blocks; block++) {
+				table.putLong(blockStarts.get(block)).putLong(compressedPosition);
+				int size = (int) (blockStarts.get(block + 1) - blockStarts.get(block));
+				if (input.length < size)
+					input = new byte[size];
+				ByteBuf raw = reader.getData(blockStarts.get(block), size);
+				raw.getBytes(0, input, 0, size);
+
+				deflater.reset();
+				deflater.setInput(input, 0, size);
+				deflater.finish();
+				while (!deflater.finished()) {
+					int length = deflater.deflate(output);
+					compressedPosition += write(channel, ByteBuffer.wrap(output, 0, length));
+				}
+			}
+			table.putLong(dataEnd).putLong(compressedPosition);
+			table.flip();
+			channel.position(0);
+			write(channel, table);
+			channel.force(true);
+		} finally {
+			deflater.end();
+		}
+
+		Files.move(tempFile.toPath(), compressedDataFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		if (!indexFile.exists()) {
+			// segment has been removed by retention in the meantime
+			compressedDataFile.delete();
+			return;
+		}
+		long rawSize = dataFile.length();
+		dataFile.delete();
+		ArchiveCatalog.getInstance().segmentChanged(indexFile);
+
+		long compressedSize = compressedDataFile.length();
+		LoggingService.logInfo(MODULE_NAME, String.format("%s compressed %d -> %d bytes (%.1fx) in %d ms", indexFile.getName(),
+				rawSize, compressedSize, (double) rawSize / Math.max(1, compressedSize), System.currentTimeMillis() - start));
+	}
+
+	private static int write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		int length = buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		return length;
+	}
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * lazy iterator over archived {@link Message} within a time frame, matching {@link ArchiveFilter} if given
+ * segments are split into chunks of records, which are scanned in parallel by a shared bounded pool
+ * and merged back in order. only a few chunks per query are scanned ahead, so a query runs in constant memory
+ * and cannot occupy the whole pool.
+ * continuation token is the position of the next {@link Message},
+ * a new cursor created with the token continues from there.
+ * torn or corrupted records are skipped
+ *
+ */
+public class ArchiveCursor implements Iterator<Message> {
+	private static final String MODULE_NAME = "Archive Cursor";
+	private static final int CHUNK_RECORDS = 4096;
+	private static final int POOL_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static final int QUERY_PARALLELISM = Math.max(1, Math.min(4, POOL_PARALLELISM / 2));
+
+	private static volatile ForkJoinPool pool;
+
+	private final MessageArchive archive;
+	private final Iterator<File> files;
+	private final long from;
+	private final long to;
+	private final ArchiveFilter filter;
+	private final long startSegment;
+	private final int startRecord;
+	private long segment;
+	private File segmentFile;
+	private ArchiveSegment.Reader reader;
+	private int record;
+	private final Deque<Future<Chunk>> scans = new ArrayDeque<>();
+	private Chunk chunk;
+	private int position;
+
+	/**
+	 * @param archive - {@link MessageArchive} to read
+	 * @param files - index files of segments to read, in order
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @param filter - {@link ArchiveFilter} or null
+	 * @param continuationToken - position to start from, or null
+	 */
+	ArchiveCursor(MessageArchive archive, List<File> files, long from, long to, ArchiveFilter filter, String continuationToken) {
+		this.archive = archive;
+		this.files = files.iterator();
+		this.from = from;
+		this.to = to;
+		this.filter = filter == null || filter.isEmpty() ? null : filter;
+		if (continuationToken == null) {
+			startSegment = Long.MIN_VALUE;
+			startRecord = 0;
+		} else {
+			int separator = continuationToken.indexOf(':');
+			try {
+				startSegment = Long.parseLong(continuationToken.substring(0, separator));
+				startRecord = Integer.parseInt(continuationToken.substring(separator + 1));
+			} catch (Exception e) {
+				throw new IllegalArgumentException("invalid continuation token");
+			}
+		}
+	}
+
+	private static ForkJoinPool getPool() {
+		if (pool == null) {
+			synchronized (ArchiveCursor.class) {
+				if (pool == null)
+					pool = new ForkJoinPool(POOL_PARALLELISM, forkJoinPool -> {
+						ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+						thread.setName("MessageBus : ArchiveScan-" + thread.getPoolIndex());
+						return thread;
+					}, null, false);
+			}
+		}
+		return pool;
+	}
+
+	static long getSegmentTimestamp(File indexFile) {
+		String fileName = indexFile.getName();
+		return Long.parseLong(fileName.substring(fileName.lastIndexOf('_') + 1, fileName.indexOf('.')));
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (chunk == null || position == chunk.views.size()) {
+			schedule();
+			if (scans.isEmpty())
+				return false;
+			chunk = take(scans.poll());
+			position = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * keeps scanning of the next chunks in progress, up to query parallelism
+	 *
+	 */
+	private void schedule() {
+		while (scans.size() < QUERY_PARALLELISM) {
+			Chunk next = nextChunk();
+			if (next == null)
+				break;
+			scans.add(getPool().submit(next::scan));
+		}
+	}
+
+	private Chunk take(Future<Chunk> scan) {
+		try {
+			return scan.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("archive query interrupted");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * splits segments into chunks of records, skipping blocks out of the time frame
+	 *
+	 * @return {@link Chunk} or null if there are no more records
+	 */
+	private Chunk nextChunk() {
+		while (true) {
+			if (reader == null && !openNextSegment())
+				return null;
+			record = reader.seek(record, from, to);
+			if (record < reader.size()) {
+				int end = Math.min(record + CHUNK_RECORDS, reader.size());
+				Chunk next = new Chunk(segment, segmentFile, new ArchiveSegment.Reader(reader), record, end);
+				record = end;
+				return next;
+			}
+			reader = null;
+		}
+	}
+
+	private boolean openNextSegment() {
+		while (files.hasNext()) {
+			File file = files.next();
+			segment = getSegmentTimestamp(file);
+			segmentFile = file;
+			if (segment < startSegment)
+				continue;
+			try {
+				reader = new ArchiveSegment.Reader(file, archive.getIndexSize(file));
+				record = segment == startSegment ? startRecord : 0;
+				return true;
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, e.getMessage());
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Message next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return new Message(chunk.views.get(position++));
+	}
+
+	/**
+	 * returns position of the next {@link Message}
+	 *
+	 * @return token or null if there is no more {@link Message}
+	 */
+	public String getContinuationToken() {
+		if (!hasNext())
+			return null;
+		return chunk.segment + ":" + chunk.records.get(position);
+	}
+
+	/**
+	 * records of a segment scanned by one task
+	 *
+	 */
+	private class Chunk {
+		private final long segment;
+		private final File segmentFile;
+		private final ArchiveSegment.Reader reader;
+		private final int start;
+		private final int end;
+		private final List<MessageView> views = new ArrayList<>();
+		private final List<Integer> records = new ArrayList<>();
+
+		Chunk(long segment, File segmentFile, ArchiveSegment.Reader reader, int start, int end) {
+			this.segment = segment;
+			this.segmentFile = segmentFile;
+			this.reader = reader;
+			this.start = start;
+			this.end = end;
+		}
+
+		Chunk scan() {
+			int corruptedRecords = 0;
+			try {
+				for (int current = reader.seek(start, from, to); current < end; current = reader.seek(current, from, to)) {
+					if (filter != null && !reader.mayMatch(current, filter)) {
+						current++;
+						continue;
+					}
+					MessageView view;
+					try {
+						view = reader.getMessageView(current++);
+					} catch (IOException e) {
+						corruptedRecords++;
+						continue;
+					}
+					long timestamp = view.getTimestamp();
+					if (timestamp >= from && timestamp <= to && (filter == null || filter.matches(view))) {
+						views.add(view);
+						records.add(current - 1);
+					}
+				}
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, e.getMessage());
+			}
+			if (corruptedRecords > 0)
+				LoggingService.logWarning(MODULE_NAME, "skipped " + corruptedRecords + " corrupted records of " + segmentFile.getName());
+			return this;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * predicate on tag, group id, info type and info format of archived {@link Message}
+ * fields which are null are not filtered.
+ * index records keep a 16 bit hash of each of these fields as header extension,
+ * so records which do not match are skipped by their header and extension only, without reading the data file.
+ *
+ */
+public class ArchiveFilter {
+	static final int[] FIELDS = { MessageView.TAG, MessageView.GROUP_ID, MessageView.INFO_TYPE, MessageView.INFO_FORMAT };
+	static final int EXTENSION_SIZE = FIELDS.length * Short.BYTES;
+
+	private final byte[][] values = new byte[FIELDS.length][];
+	private final short[] hashes = new short[FIELDS.length];
+	private final boolean empty;
+
+	/**
+	 * @param tag - tag to match or null
+	 * @param messageGroupId - group id to match or null
+	 * @param infoType - info type to match or null
+	 * @param infoFormat - info format to match or null
+	 */
+	public ArchiveFilter(String tag, String messageGroupId, String infoType, String infoFormat) {
+		String[] strings = { tag, messageGroupId, infoType, infoFormat };
+		boolean empty = true;
+		for (int i = 0; i < FIELDS.length; i++) {
+			if (strings[i] == null)
+				continue;
+			values[i] = strings[i].getBytes(UTF_8);
+			hashes[i] = hash(values[i]);
+			empty = false;
+		}
+		this.empty = empty;
+	}
+
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	private static short hash(byte[] bytes) {
+		int hash = 0x811C9DC5;
+		for (byte value : bytes)
+			hash = (hash ^ (value & 0xFF)) * 0x01000193;
+		return (short) (hash ^ (hash >>> 16));
+	}
+
+	private static short hash(ByteBuf buffer, int index, int length) {
+		int hash = 0x811C9DC5;
+		for (int i = index; i < index + length; i++)
+			hash = (hash ^ buffer.getUnsignedByte(i)) * 0x01000193;
+		return (short) (hash ^ (hash >>> 16));
+	}
+
+	/**
+	 * writes header extension of a {@link Message}
+	 *
+	 * @param view - {@link MessageView} of the {@link Message}
+	 * @param out - destination buffer
+	 */
+	static void writeExtension(MessageView view, ByteBuffer out) {
+		for (int field : FIELDS)
+			out.putShort(hash(view.buffer(), view.fieldOffset(field), view.fieldLength(field)));
+	}
+
+	/**
+	 * checks field lengths in the header and hashes in the header extension of an index record
+	 * a record passing the check may still not match because of hash collision
+	 *
+	 * @param index - buffer holding index record
+	 * @param headerIndex - index of record header
+	 * @param extensionIndex - index of header extension, or -1 if the record has none
+	 * @return false if the record does not match for sure
+	 */
+	boolean mayMatch(ByteBuf index, int headerIndex, int extensionIndex) {
+		for (int i = 0; i < FIELDS.length; i++) {
+			if (values[i] == null)
+				continue;
+			if (MessageView.length(index, headerIndex, FIELDS[i]) != values[i].length)
+				return false;
+			if (extensionIndex >= 0 && index.getShort(extensionIndex + i * Short.BYTES) != hashes[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * compares fields of the {@link Message}
+	 *
+	 * @param view - {@link MessageView} of the {@link Message}
+	 * @return boolean
+	 */
+	boolean matches(MessageView view) {
+		for (int i = 0; i < FIELDS.length; i++) {
+			if (values[i] == null)
+				continue;
+			int offset = view.fieldOffset(FIELDS[i]);
+			if (view.fieldLength(FIELDS[i]) != values[i].length)
+				return false;
+			for (int j = 0; j < values[i].length; j++)
+				if (view.buffer().getByte(offset + j) != values[i][j])
+					return false;
+		}
+		return true;
+	}
+}
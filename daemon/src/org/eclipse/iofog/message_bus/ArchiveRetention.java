@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * enforces retention of archived {@link Message}
+ * each publisher is limited by maximum age and size of its archive,
+ * and when all archives exceed disk limit, oldest segments of the largest archives are removed first.
+ * disk used by mailbox backlogs of slow receivers counts against the disk limit, but is never removed here.
+ * segments are looked up in {@link ArchiveCatalog}, so the archive directory is not listed.
+ * newest segment of a publisher is never removed, as it may be appended.
+ *
+ */
+class ArchiveRetention {
+	private static final String MODULE_NAME = "Archive Retention";
+	private static final int CHECK_FREQ_SECONDS = 5;
+	private static final int MAXIMUM_REMOVALS_PER_CHECK = 64;
+	private static final float DISK_LIMIT_TARGET = 0.75f;
+
+	private static volatile ArchiveRetention instance;
+
+	private ArchiveRetention() {
+	}
+
+	static ArchiveRetention getInstance() {
+		if (instance == null) {
+			synchronized (ArchiveRetention.class) {
+				if (instance == null)
+					instance = new ArchiveRetention();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * starts checking retention in background
+	 *
+	 */
+	void start() {
+		Thread thread = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(CHECK_FREQ_SECONDS * 1000);
+					enforce();
+				} catch (InterruptedException e) {
+					break;
+				} catch (Exception e) {
+					LoggingService.logWarning(MODULE_NAME, e.getMessage());
+				}
+			}
+		}, "MessageBus : ArchiveRetention");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * removes segments which exceed maximum age, maximum size of their publisher or the disk limit
+	 *
+	 */
+	void enforce() {
+		ArchiveCatalog catalog = ArchiveCatalog.getInstance();
+		long now = System.currentTimeMillis();
+		long maxAge = Configuration.getArchiveMaxAge() * 60 * 60 * 1000L;
+		long maxBytes = Configuration.getArchivePublisherLimit() * 1_000_000L;
+		int removals = 0;
+		synchronized (catalog) {
+			for (ArchiveCatalog.Archive archive : catalog.getArchives()) {
+				while (removals < MAXIMUM_REMOVALS_PER_CHECK && archive.getSegments().size() > 1) {
+					ArchiveCatalog.Segment oldest = archive.getSegments().firstEntry().getValue();
+					boolean expired = maxAge > 0 && oldest.getLast() < now - maxAge;
+					boolean oversized = maxBytes > 0 && archive.getBytes() > maxBytes;
+					if (!expired && !oversized)
+						break;
+					catalog.removeOldest(archive);
+					removals++;
+				}
+			}
+
+			long diskLimit = (long) (Configuration.getDiskLimit() * 1_000_000_000);
+			long mailboxBytes = ReceiverMailbox.getTotalDiskBytes();
+			if (catalog.getTotalBytes() + mailboxBytes > diskLimit) {
+				long target = (long) (diskLimit * DISK_LIMIT_TARGET);
+				while (removals < MAXIMUM_REMOVALS_PER_CHECK && catalog.getTotalBytes() + mailboxBytes > target) {
+					ArchiveCatalog.Archive largest = null;
+					for (ArchiveCatalog.Archive archive : catalog.getArchives())
+						if (archive.getSegments().size() > 1 && (largest == null || archive.getBytes() > largest.getBytes()))
+							largest = archive;
+					if (largest == null)
+						break;
+					catalog.removeOldest(largest);
+					removals++;
+				}
+			}
+		}
+
+		if (removals > 0)
+			LoggingService.logInfo(MODULE_NAME, "removed " + removals + " archive segments");
+	}
+}
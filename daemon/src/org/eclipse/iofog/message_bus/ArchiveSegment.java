@@ -0,0 +1,739 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.eclipse.iofog.message_bus.MessageView.HEADER_SIZE;
+
+/**
+ * archive segment, a pair of index (.idx) and data (.iomsg) files
+ * both files are preallocated and memory mapped while appending, and truncated to their content on close.
+ * index file starts with magic, version and number of records forced to the disk,
+ * followed by records of {@link Message} header, data position, CRC-32C and header extension.
+ * header extension keeps hashes of fields used by {@link ArchiveFilter}, checksum covers the whole record and data.
+ * records are verified when read and torn records at the end of a segment are truncated by {@link #recover(File)}.
+ * index files of version 2 have no header extension, index files of version 1 have no checksums
+ * and index files written before have no file header.
+ * time index (.tix) sidecar keeps minimum and maximum timestamp of every block of {@link #TIME_INDEX_INTERVAL} records,
+ * so queries skip blocks out of the time frame.
+ * data file of a closed segment may be replaced by a block compressed one (.iomsz), see {@link ArchiveCompressor}.
+ *
+ */
+class ArchiveSegment {
+	static final int MAGIC = 0x494F4658;
+	static final int FORMAT_VERSION = 3;
+	static final int FILE_HEADER_SIZE = 16;
+	private static final int CHECKSUM_POSITION = HEADER_SIZE + Long.BYTES;
+	private static final int EXTENSION_POSITION = CHECKSUM_POSITION + Integer.BYTES;
+	static final int RECORD_SIZE = EXTENSION_POSITION + ArchiveFilter.EXTENSION_SIZE;
+	private static final int VERSION_2_RECORD_SIZE = HEADER_SIZE + Long.BYTES + Integer.BYTES;
+	private static final int SYNCED_RECORDS_INDEX = 8;
+	private static final int VERSION_1_HEADER_SIZE = 8;
+	private static final int VERSION_1_RECORD_SIZE = HEADER_SIZE + Long.BYTES;
+	private static final int MINIMUM_INDEX_SIZE = FILE_HEADER_SIZE + RECORD_SIZE * 1024;
+	static final int TIME_INDEX_MAGIC = 0x494F4654;
+	static final int TIME_INDEX_HEADER_SIZE = 12;
+	static final int TIME_INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+	static final int TIME_INDEX_INTERVAL = 64;
+	static final int COMPRESSED_MAGIC = 0x494F465A;
+	static final int COMPRESSED_HEADER_SIZE = 12;
+
+	private final File indexFile;
+	private final File dataFile;
+	private final File timeIndexFile;
+	private FileChannel indexChannel;
+	private FileChannel dataChannel;
+	private FileChannel timeIndexChannel;
+	private MappedByteBuffer indexMap;
+	private MappedByteBuffer dataMap;
+	private final ByteBuffer timeIndexBuffer = ByteBuffer.allocate(TIME_INDEX_ENTRY_SIZE * 64);
+	private final MessageView view = new MessageView();
+	private final Crc32c crc = new Crc32c();
+	private final ByteBuffer extension = ByteBuffer.allocate(ArchiveFilter.EXTENSION_SIZE);
+	private int dataPosition;
+	private int records;
+	private long blockMinimum;
+	private long blockMaximum;
+	private long minimumTimestamp = Long.MAX_VALUE;
+	private long maximumTimestamp = Long.MIN_VALUE;
+	private volatile int committedIndexSize;
+
+	ArchiveSegment(File indexFile) {
+		this.indexFile = indexFile;
+		this.dataFile = getDataFile(indexFile);
+		this.timeIndexFile = getTimeIndexFile(indexFile);
+	}
+
+	static File getDataFile(File indexFile) {
+		return getFile(indexFile, ".iomsg");
+	}
+
+	static File getTimeIndexFile(File indexFile) {
+		return getFile(indexFile, ".tix");
+	}
+
+	static File getCompressedDataFile(File indexFile) {
+		return getFile(indexFile, ".iomsz");
+	}
+
+	/**
+	 * computes disk space used by segment files
+	 *
+	 * @param indexFile - index file of segment
+	 * @return size in bytes
+	 */
+	static long size(File indexFile) {
+		return indexFile.length() + getDataFile(indexFile).length() + getCompressedDataFile(indexFile).length()
+				+ getTimeIndexFile(indexFile).length();
+	}
+
+	/**
+	 * removes segment files
+	 *
+	 * @param indexFile - index file of segment
+	 */
+	static void delete(File indexFile) {
+		indexFile.delete();
+		getDataFile(indexFile).delete();
+		getCompressedDataFile(indexFile).delete();
+		new File(getCompressedDataFile(indexFile).getPath() + ".tmp").delete();
+		getTimeIndexFile(indexFile).delete();
+	}
+
+	private static File getFile(File indexFile, String extension) {
+		String fileName = indexFile.getName();
+		return new File(indexFile.getParentFile(), fileName.substring(0, fileName.indexOf(".")) + extension);
+	}
+
+	File getIndexFile() {
+		return indexFile;
+	}
+
+	int getRecords() {
+		return records;
+	}
+
+	/**
+	 * returns minimum timestamp of records appended since the segment has been opened
+	 *
+	 * @return long
+	 */
+	long getMinimumTimestamp() {
+		return minimumTimestamp;
+	}
+
+	/**
+	 * returns maximum timestamp of records appended since the segment has been opened
+	 *
+	 * @return long
+	 */
+	long getMaximumTimestamp() {
+		return maximumTimestamp;
+	}
+
+	/**
+	 * returns size of flushed content of segment files, without preallocated space
+	 *
+	 * @return size in bytes
+	 */
+	long getContentSize() {
+		return committedIndexSize + dataPosition + TIME_INDEX_HEADER_SIZE + (long) (records / TIME_INDEX_INTERVAL) * TIME_INDEX_ENTRY_SIZE;
+	}
+
+	/**
+	 * returns size of index file part which has been flushed,
+	 * readers must not go beyond it while the segment is appended
+	 *
+	 * @return int
+	 */
+	int getCommittedIndexSize() {
+		return committedIndexSize;
+	}
+
+	/**
+	 * creates and maps the files
+	 *
+	 * @param capacity - preallocated size of data file
+	 * @throws IOException
+	 */
+	void create(int capacity) throws IOException {
+		open(capacity);
+		indexMap.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(0).putInt(0);
+		timeIndexChannel.truncate(0);
+		writeTimeIndexHeader();
+		committedIndexSize = indexMap.position();
+	}
+
+	private void writeTimeIndexHeader() throws IOException {
+		timeIndexBuffer.putInt(TIME_INDEX_MAGIC).putInt(FORMAT_VERSION).putInt(TIME_INDEX_INTERVAL);
+		writeTimeIndex();
+	}
+
+	/**
+	 * maps the files of a previous run to continue appending them
+	 *
+	 * @param capacity - preallocated size of data file
+	 * @return false if segment is not in current format or has no free space
+	 * @throws IOException
+	 */
+	boolean resume(int capacity) throws IOException {
+		if (!isCurrentFormat(indexFile) || dataFile.length() >= capacity || getCompressedDataFile(indexFile).exists())
+			return false;
+		Reader reader = new Reader(indexFile, indexFile.length());
+		records = reader.size();
+		open(capacity);
+		indexMap.position(FILE_HEADER_SIZE + records * RECORD_SIZE);
+		if (records > 0)
+			dataPosition = (int) reader.getDataPosition(records - 1) + reader.getDataSize(records - 1);
+
+		// keeps entries of complete blocks and rebuilds the rest from records
+		int blocks = records / TIME_INDEX_INTERVAL;
+		int indexedBlocks = Math.min(blocks, reader.getTimeIndexSize());
+		timeIndexChannel.truncate(indexedBlocks > 0 ? TIME_INDEX_HEADER_SIZE + (long) indexedBlocks * TIME_INDEX_ENTRY_SIZE : 0);
+		timeIndexChannel.position(timeIndexChannel.size());
+		if (indexedBlocks == 0)
+			writeTimeIndexHeader();
+		blockMinimum = Long.MAX_VALUE;
+		blockMaximum = Long.MIN_VALUE;
+		for (int record = indexedBlocks * TIME_INDEX_INTERVAL; record < records; record++) {
+			long timestamp = reader.getMessageView(record).getTimestamp();
+			blockMinimum = Math.min(blockMinimum, timestamp);
+			blockMaximum = Math.max(blockMaximum, timestamp);
+			if ((record + 1) % TIME_INDEX_INTERVAL == 0)
+				addTimeIndexEntry();
+		}
+		writeTimeIndex();
+		committedIndexSize = indexMap.position();
+		return true;
+	}
+
+	private void open(int capacity) throws IOException {
+		indexChannel = FileChannel.open(indexFile.toPath(), CREATE, READ, WRITE);
+		dataChannel = FileChannel.open(dataFile.toPath(), CREATE, READ, WRITE);
+		timeIndexChannel = FileChannel.open(timeIndexFile.toPath(), CREATE, WRITE);
+		blockMinimum = Long.MAX_VALUE;
+		blockMaximum = Long.MIN_VALUE;
+		indexMap = indexChannel.map(READ_WRITE, 0, Math.max(indexChannel.size(), Math.max(MINIMUM_INDEX_SIZE, capacity / 32)));
+		dataMap = dataChannel.map(READ_WRITE, 0, capacity);
+	}
+
+	/**
+	 * checks if there is enough free space for the {@link Message}
+	 *
+	 * @param dataSize - size of data part of the {@link Message}
+	 * @return boolean
+	 */
+	boolean hasRoom(int dataSize) {
+		return dataMap.capacity() - dataPosition >= dataSize;
+	}
+
+	/**
+	 * writes data part to data file and header with data position to index file
+	 * the record becomes visible to readers after {@link #flush()}
+	 *
+	 * @param message - raw bytes of {@link Message}
+	 * @throws IOException
+	 */
+	void append(byte[] message) throws IOException {
+		int dataSize = message.length - HEADER_SIZE;
+		dataMap.position(dataPosition);
+		dataMap.put(message, HEADER_SIZE, dataSize);
+		if (indexMap.remaining() < RECORD_SIZE) {
+			int position = indexMap.position();
+			indexMap = indexChannel.map(READ_WRITE, 0, (long) indexMap.capacity() * 2);
+			indexMap.position(position);
+		}
+		view.wrap(Unpooled.wrappedBuffer(message), 0);
+		extension.clear();
+		ArchiveFilter.writeExtension(view, extension);
+		extension.flip();
+		crc.reset();
+		crc.update(message, 0, HEADER_SIZE);
+		crc.updateLong(dataPosition);
+		crc.update(extension.array(), 0, extension.limit());
+		crc.update(message, HEADER_SIZE, dataSize);
+		indexMap.put(message, 0, HEADER_SIZE).putLong(dataPosition).putInt(crc.getValue()).put(extension);
+		dataPosition += dataSize;
+
+		long timestamp = view.getTimestamp();
+		blockMinimum = Math.min(blockMinimum, timestamp);
+		blockMaximum = Math.max(blockMaximum, timestamp);
+		minimumTimestamp = Math.min(minimumTimestamp, timestamp);
+		maximumTimestamp = Math.max(maximumTimestamp, timestamp);
+		if (++records % TIME_INDEX_INTERVAL == 0)
+			addTimeIndexEntry();
+	}
+
+	private void addTimeIndexEntry() throws IOException {
+		if (!timeIndexBuffer.hasRemaining())
+			writeTimeIndex();
+		timeIndexBuffer.putLong(blockMinimum).putLong(blockMaximum);
+		blockMinimum = Long.MAX_VALUE;
+		blockMaximum = Long.MIN_VALUE;
+	}
+
+	private void writeTimeIndex() throws IOException {
+		timeIndexBuffer.flip();
+		while (timeIndexBuffer.hasRemaining())
+			timeIndexChannel.write(timeIndexBuffer);
+		timeIndexBuffer.clear();
+	}
+
+	/**
+	 * makes appended records visible to readers
+	 *
+	 * @throws IOException
+	 */
+	void flush() throws IOException {
+		writeTimeIndex();
+		committedIndexSize = indexMap.position();
+	}
+
+	/**
+	 * flushes and forces appended records to the disk,
+	 * then records their number in index file header, so recovery does not verify them again
+	 *
+	 * @throws IOException
+	 */
+	void sync() throws IOException {
+		flush();
+		dataMap.force();
+		indexMap.force();
+		indexMap.putInt(SYNCED_RECORDS_INDEX, records);
+		indexMap.force();
+		timeIndexChannel.force(false);
+	}
+
+	/**
+	 * truncates preallocated space and closes the files
+	 * records not forced by {@link #sync()} before stay unsynced, so recovery still verifies them
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		if (records % TIME_INDEX_INTERVAL != 0)
+			addTimeIndexEntry();
+		flush();
+		try {
+			indexChannel.truncate(committedIndexSize);
+			dataChannel.truncate(dataPosition);
+		} finally {
+			indexMap = null;
+			dataMap = null;
+			indexChannel.close();
+			dataChannel.close();
+			timeIndexChannel.close();
+		}
+	}
+
+	private static boolean isCurrentFormat(File indexFile) throws IOException {
+		if (indexFile.length() < FILE_HEADER_SIZE)
+			return false;
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), READ)) {
+			MappedByteBuffer header = channel.map(READ_ONLY, 0, FILE_HEADER_SIZE);
+			return header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION;
+		}
+	}
+
+	/**
+	 * verifies records of a segment, which may not have been closed, and truncates it after the last valid record
+	 * records forced to the disk before are not verified again.
+	 * time index entries of truncated records are removed as well.
+	 *
+	 * @param indexFile - index file of segment
+	 * @return number of removed records
+	 * @throws IOException
+	 */
+	static int recover(File indexFile) throws IOException {
+		File dataFile = getDataFile(indexFile);
+		if (!isCurrentFormat(indexFile) || getCompressedDataFile(indexFile).exists() || !dataFile.exists())
+			return 0;
+		try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), READ, WRITE);
+				FileChannel dataChannel = FileChannel.open(dataFile.toPath(), READ, WRITE)) {
+			MappedByteBuffer index = indexChannel.map(READ_WRITE, 0, indexChannel.size());
+			ByteBuf data = dataChannel.size() > 0 
+					? Unpooled.wrappedBuffer(dataChannel.map(READ_ONLY, 0, dataChannel.size())) : Unpooled.EMPTY_BUFFER;
+			int count = (index.capacity() - FILE_HEADER_SIZE) / RECORD_SIZE;
+			int valid = Math.max(0, Math.min(index.getInt(SYNCED_RECORDS_INDEX), count));
+			ByteBuf indexBuffer = Unpooled.wrappedBuffer(index);
+			long dataEnd = valid > 0 ? getRecordEnd(indexBuffer, valid - 1) : 0;
+			Crc32c crc = new Crc32c();
+			int written = valid;
+			boolean intact = true;
+			// preallocated space after the last written record is filled by zeros
+			for (int recordIndex = FILE_HEADER_SIZE + valid * RECORD_SIZE; written < count && indexBuffer.getShort(recordIndex) != 0;
+					recordIndex += RECORD_SIZE) {
+				if (intact) {
+					long position = indexBuffer.getLong(recordIndex + HEADER_SIZE);
+					long end = getRecordEnd(indexBuffer, written);
+					intact = indexBuffer.getShort(recordIndex) == MessageView.VERSION && position == dataEnd
+							&& end >= position && end <= data.capacity()
+							&& checksum(crc, indexBuffer, recordIndex, true, data.slice((int) position, (int) (end - position)))
+								== indexBuffer.getInt(recordIndex + CHECKSUM_POSITION);
+					if (intact) {
+						dataEnd = end;
+						valid++;
+					}
+				}
+				written++;
+			}
+
+			long indexSize = FILE_HEADER_SIZE + (long) valid * RECORD_SIZE;
+			if (indexSize == index.capacity() && dataEnd == data.capacity())
+				return 0;
+			index.putInt(SYNCED_RECORDS_INDEX, valid);
+			index.force();
+			indexChannel.truncate(indexSize);
+			dataChannel.truncate(dataEnd);
+			indexChannel.force(true);
+			dataChannel.force(true);
+
+			File timeIndexFile = getTimeIndexFile(indexFile);
+			long timeIndexSize = TIME_INDEX_HEADER_SIZE + (long) (valid / TIME_INDEX_INTERVAL) * TIME_INDEX_ENTRY_SIZE;
+			if (timeIndexFile.length() > timeIndexSize) {
+				try (FileChannel timeIndexChannel = FileChannel.open(timeIndexFile.toPath(), WRITE)) {
+					timeIndexChannel.truncate(timeIndexSize);
+				}
+			}
+			return written - valid;
+		}
+	}
+
+	private static long getRecordEnd(ByteBuf index, int record) {
+		int recordIndex = FILE_HEADER_SIZE + record * RECORD_SIZE;
+		return index.getLong(recordIndex + HEADER_SIZE) + MessageView.dataSize(index, recordIndex);
+	}
+
+	private static int checksum(Crc32c crc, ByteBuf index, int recordIndex, boolean extension, ByteBuf data) {
+		crc.reset();
+		crc.update(index.nioBuffer(recordIndex, HEADER_SIZE));
+		crc.updateLong(index.getLong(recordIndex + HEADER_SIZE));
+		if (extension)
+			crc.update(index.nioBuffer(recordIndex + EXTENSION_POSITION, ArchiveFilter.EXTENSION_SIZE));
+		crc.update(data.nioBuffer());
+		return crc.getValue();
+	}
+
+	private static ByteBuf map(File file, long size) throws IOException {
+		if (size <= 0)
+			return Unpooled.EMPTY_BUFFER;
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			return Unpooled.wrappedBuffer(channel.map(READ_ONLY, 0, Math.min(size, channel.size())));
+		}
+	}
+
+	/**
+	 * zero-copy reader of archive segment, records are read from memory mapped files
+	 * and returned {@link Message} are backed by the mapped regions.
+	 * a reader is used by one thread at a time, {@link #Reader(Reader)} shares mapped files with another thread
+	 *
+	 */
+	static class Reader {
+		private final ByteBuf index;
+		private final ByteBuf data;
+		private final long[] dataBlockStarts;
+		private final long[] compressedBlockStarts;
+		private int cachedBlock = -1;
+		private ByteBuf cachedBlockData;
+		private final int headerSize;
+		private final int recordSize;
+		private final boolean checksums;
+		private final boolean extensions;
+		private final Crc32c crc = new Crc32c();
+		private final int records;
+		private final long[] blockMinimums;
+		private final long[] blockMaximums;
+		private final long[] cumulativeMaximums;
+
+		/**
+		 * creates reader over the same mapped files, with its own decompressed block cache
+		 *
+		 * @param reader - {@link Reader} to share mapped files of
+		 */
+		Reader(Reader reader) {
+			index = reader.index;
+			data = reader.data;
+			dataBlockStarts = reader.dataBlockStarts;
+			compressedBlockStarts = reader.compressedBlockStarts;
+			headerSize = reader.headerSize;
+			recordSize = reader.recordSize;
+			checksums = reader.checksums;
+			extensions = reader.extensions;
+			records = reader.records;
+			blockMinimums = reader.blockMinimums;
+			blockMaximums = reader.blockMaximums;
+			cumulativeMaximums = reader.cumulativeMaximums;
+		}
+
+		/**
+		 * @param indexFile - index file of segment
+		 * @param indexSize - number of index file bytes to read
+		 * @throws IOException
+		 */
+		Reader(File indexFile, long indexSize) throws IOException {
+			index = map(indexFile, indexSize);
+			int version = index.capacity() >= VERSION_1_HEADER_SIZE && index.getInt(0) == MAGIC ? index.getInt(4) : 0;
+			headerSize = version >= 2 ? FILE_HEADER_SIZE : version == 1 ? VERSION_1_HEADER_SIZE : 0;
+			recordSize = version >= 3 ? RECORD_SIZE : version == 2 ? VERSION_2_RECORD_SIZE : VERSION_1_RECORD_SIZE;
+			checksums = version >= 2;
+			extensions = version >= 3;
+			int count = Math.max(0, index.capacity() - headerSize) / recordSize;
+			if (headerSize > 0) {
+				// preallocated space of a segment, which has not been closed, is filled by zeros
+				int low = 0;
+				int high = count;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (index.getShort(headerSize + middle * recordSize) != 0)
+						low = middle + 1;
+					else
+						high = middle;
+				}
+				count = low;
+			}
+			records = count;
+
+			ByteBuf dataBuffer = null;
+			File compressedDataFile = getCompressedDataFile(indexFile);
+			if (count == 0) {
+				dataBuffer = Unpooled.EMPTY_BUFFER;
+			} else if (!compressedDataFile.exists()) {
+				try {
+					dataBuffer = map(getDataFile(indexFile), Long.MAX_VALUE);
+				} catch (NoSuchFileException e) {
+					// data file has been compressed in the meantime
+				}
+			}
+			if (dataBuffer == null) {
+				dataBuffer = map(compressedDataFile, Long.MAX_VALUE);
+				if (dataBuffer.capacity() < COMPRESSED_HEADER_SIZE || dataBuffer.getInt(0) != COMPRESSED_MAGIC)
+					throw new IOException("invalid data file format");
+				int blocks = dataBuffer.getInt(8);
+				dataBlockStarts = new long[blocks + 1];
+				compressedBlockStarts = new long[blocks + 1];
+				for (int block = 0; block <= blocks; block++) {
+					dataBlockStarts[block] = dataBuffer.getLong(COMPRESSED_HEADER_SIZE + block * 2 * Long.BYTES);
+					compressedBlockStarts[block] = dataBuffer.getLong(COMPRESSED_HEADER_SIZE + block * 2 * Long.BYTES + Long.BYTES);
+				}
+			} else {
+				dataBlockStarts = null;
+				compressedBlockStarts = null;
+			}
+			data = dataBuffer;
+
+			ByteBuf timeIndex = headerSize > 0 && count > 0 && getTimeIndexFile(indexFile).exists()
+					? map(getTimeIndexFile(indexFile), Long.MAX_VALUE) : Unpooled.EMPTY_BUFFER;
+			int blocks = 0;
+			if (timeIndex.capacity() >= TIME_INDEX_HEADER_SIZE && timeIndex.getInt(0) == TIME_INDEX_MAGIC
+					&& timeIndex.getInt(8) == TIME_INDEX_INTERVAL)
+				blocks = Math.min((timeIndex.capacity() - TIME_INDEX_HEADER_SIZE) / TIME_INDEX_ENTRY_SIZE,
+						(count + TIME_INDEX_INTERVAL - 1) / TIME_INDEX_INTERVAL);
+			blockMinimums = new long[blocks];
+			blockMaximums = new long[blocks];
+			cumulativeMaximums = new long[blocks];
+			for (int block = 0; block < blocks; block++) {
+				int entryIndex = TIME_INDEX_HEADER_SIZE + block * TIME_INDEX_ENTRY_SIZE;
+				blockMinimums[block] = timeIndex.getLong(entryIndex);
+				blockMaximums[block] = timeIndex.getLong(entryIndex + Long.BYTES);
+				cumulativeMaximums[block] = block > 0 ? Math.max(cumulativeMaximums[block - 1], blockMaximums[block]) : blockMaximums[block];
+			}
+		}
+
+		int size() {
+			return records;
+		}
+
+		/**
+		 * returns number of record blocks covered by time index
+		 *
+		 * @return int
+		 */
+		int getTimeIndexSize() {
+			return blockMinimums.length;
+		}
+
+		/**
+		 * computes minimum and maximum timestamp of records
+		 * records covered by time index are not read
+		 *
+		 * @return array of minimum and maximum timestamp
+		 */
+		long[] getTimeRange() {
+			long minimum = Long.MAX_VALUE;
+			long maximum = Long.MIN_VALUE;
+			for (int block = 0; block < blockMinimums.length; block++) {
+				minimum = Math.min(minimum, blockMinimums[block]);
+				maximum = Math.max(maximum, blockMaximums[block]);
+			}
+			for (int record = blockMinimums.length * TIME_INDEX_INTERVAL; record < records; record++) {
+				try {
+					long timestamp = getMessageView(record).getTimestamp();
+					minimum = Math.min(minimum, timestamp);
+					maximum = Math.max(maximum, timestamp);
+				} catch (IOException e) {
+					// corrupted records are skipped by queries as well
+				}
+			}
+			return new long[] { minimum, maximum };
+		}
+
+		/**
+		 * finds the first record starting from given one, which may be within the time frame
+		 * blocks whose timestamps are all out of the time frame are skipped, 
+		 * records not covered by time index are never skipped
+		 *
+		 * @param record - record number to start from
+		 * @param from - beginning of time frame in milliseconds
+		 * @param to - end of time frame in milliseconds
+		 * @return record number or {@link #size()} if there is no such record
+		 */
+		int seek(int record, long from, long to) {
+			int block = record / TIME_INDEX_INTERVAL;
+			if (block < blockMinimums.length && cumulativeMaximums[block] < from) {
+				int low = block;
+				int high = blockMinimums.length;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (cumulativeMaximums[middle] < from)
+						low = middle + 1;
+					else
+						high = middle;
+				}
+				block = low;
+				record = block * TIME_INDEX_INTERVAL;
+			}
+			while (block < blockMinimums.length && (blockMaximums[block] < from || blockMinimums[block] > to)) {
+				block++;
+				record = block * TIME_INDEX_INTERVAL;
+			}
+			return Math.min(record, records);
+		}
+
+		private int getRecordIndex(int record) {
+			return headerSize + record * recordSize;
+		}
+
+		long getDataPosition(int record) {
+			return index.getLong(getRecordIndex(record) + HEADER_SIZE);
+		}
+
+		int getDataSize(int record) {
+			return MessageView.dataSize(index, getRecordIndex(record));
+		}
+
+		/**
+		 * checks {@link ArchiveFilter} against header and header extension of a record, data file is not read
+		 *
+		 * @param record - record number in the segment
+		 * @param filter - {@link ArchiveFilter}
+		 * @return false if the record does not match for sure
+		 */
+		boolean mayMatch(int record, ArchiveFilter filter) {
+			int recordIndex = getRecordIndex(record);
+			return filter.mayMatch(index, recordIndex, extensions ? recordIndex + EXTENSION_POSITION : -1);
+		}
+
+		/**
+		 * returns view of the {@link Message} over mapped index and data files
+		 * checksum of the record is verified
+		 *
+		 * @param record - record number in the segment
+		 * @return {@link MessageView}
+		 * @throws IOException if record is torn or corrupted
+		 */
+		MessageView getMessageView(int record) throws IOException {
+			int recordIndex = getRecordIndex(record);
+			if (index.getShort(recordIndex) != MessageView.VERSION)
+				throw new IOException("invalid index file format");
+			ByteBuf messageData = getData(getDataPosition(record), getDataSize(record));
+			if (checksums && checksum(crc, index, recordIndex, extensions, messageData) != index.getInt(recordIndex + CHECKSUM_POSITION))
+				throw new IOException("corrupted record");
+			return new MessageView(Unpooled.wrappedBuffer(index.slice(recordIndex, HEADER_SIZE), messageData));
+		}
+
+		/**
+		 * returns data part of a record, only the block holding it is decompressed
+		 *
+		 * @param position - position of data
+		 * @param size - size of data
+		 * @return {@link ByteBuf}
+		 * @throws IOException
+		 */
+		ByteBuf getData(long position, int size) throws IOException {
+			if (dataBlockStarts == null) {
+				if (position < 0 || position + size > data.capacity())
+					throw new IOException("invalid data file format");
+				return data.slice((int) position, size);
+			}
+
+			int low = 0;
+			int high = dataBlockStarts.length - 2;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (dataBlockStarts[middle] <= position)
+					low = middle;
+				else
+					high = middle - 1;
+			}
+			if (position < dataBlockStarts[low] || position + size > dataBlockStarts[low + 1])
+				throw new IOException("invalid data file format");
+			if (low != cachedBlock) {
+				cachedBlockData = inflate(low);
+				cachedBlock = low;
+			}
+			return cachedBlockData.slice((int) (position - dataBlockStarts[low]), size);
+		}
+
+		private ByteBuf inflate(int block) throws IOException {
+			int compressedStart = (int) compressedBlockStarts[block];
+			// inflater without zlib header needs an extra byte of input
+			byte[] input = new byte[(int) compressedBlockStarts[block + 1] - compressedStart + 1];
+			data.getBytes(compressedStart, input, 0, input.length - 1);
+			byte[] output = new byte[(int) (dataBlockStarts[block + 1] - dataBlockStarts[block])];
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(input);
+				int length = 0;
+				while (length < output.length && !inflater.finished()) {
+					int inflated = inflater.inflate(output, length, output.length - length);
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					length += inflated;
+				}
+				if (length != output.length)
+					throw new IOException("invalid data file format");
+			} catch (DataFormatException e) {
+				throw new IOException("invalid data file format");
+			} finally {
+				inflater.end();
+			}
+			return Unpooled.wrappedBuffer(output);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * write-behind writer of {@link MessageArchive}
+ * appends are queued and a single thread coalesces them into large sequential writes,
+ * flushed when flush size is buffered or flush interval elapsed
+ * 
+ */
+class ArchiveWriter {
+	private static final String MODULE_NAME = "Archive Writer";
+	private static final int QUEUE_CAPACITY = 10_000;
+	private static final int MAXIMUM_BATCH = 1_000;
+
+	private static volatile ArchiveWriter instance;
+
+	private final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final Set<MessageArchive> dirtyArchives = new LinkedHashSet<>();
+	private long bufferedBytes = 0;
+	private long lastFlush = System.currentTimeMillis();
+
+	private ArchiveWriter() {
+		Thread writer = new Thread(this::write, "MessageBus : ArchiveWriter");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	static ArchiveWriter getInstance() {
+		if (instance == null) {
+			synchronized (ArchiveWriter.class) {
+				if (instance == null) 
+					instance = new ArchiveWriter();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * queues messages to be appended to archive
+	 * waits, if queue is full
+	 * 
+	 * @param archive - {@link MessageArchive}
+	 * @param messages - raw bytes of {@link Message}
+	 * @param timestamp - timestamp of messages
+	 * @throws InterruptedException
+	 */
+	void append(MessageArchive archive, List<byte[]> messages, long timestamp) throws InterruptedException {
+		queue.put(new Task(archive, messages, timestamp, false));
+	}
+
+	/**
+	 * waits until all messages queued before have been written to the disk
+	 * 
+	 * @param archive - {@link MessageArchive}
+	 * @throws Exception
+	 */
+	void flush(MessageArchive archive) throws Exception {
+		Task task = new Task(archive, null, 0, false);
+		queue.put(task);
+		task.done.get();
+	}
+
+	/**
+	 * writes queued messages of archive and closes its files
+	 * 
+	 * @param archive - {@link MessageArchive}
+	 * @throws Exception
+	 */
+	void close(MessageArchive archive) throws Exception {
+		Task task = new Task(archive, null, 0, true);
+		queue.put(task);
+		task.done.get();
+	}
+
+	private void write() {
+		List<Task> batch = new ArrayList<>(MAXIMUM_BATCH);
+		while (true) {
+			try {
+				long interval = Configuration.getArchiveFlushIntervalMillis();
+				if (Configuration.getArchiveFsyncIntervalMillis() > 0)
+					interval = Math.min(interval, Configuration.getArchiveFsyncIntervalMillis());
+				long wait = Math.max(0, lastFlush + interval - System.currentTimeMillis());
+				Task task = queue.poll(wait, TimeUnit.MILLISECONDS);
+				if (task != null) {
+					batch.add(task);
+					queue.drainTo(batch, MAXIMUM_BATCH - 1);
+					batch.forEach(this::process);
+					batch.clear();
+				}
+				if (bufferedBytes >= Configuration.getArchiveFlushSizeBytes() 
+						|| System.currentTimeMillis() - lastFlush >= interval)
+					flushAll();
+			} catch (InterruptedException e) {
+				break;
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, e.getMessage());
+			}
+		}
+	}
+
+	private void process(Task task) {
+		try {
+			if (task.messages != null) {
+				bufferedBytes += task.archive.append(task.messages, task.timestamp);
+				dirtyArchives.add(task.archive);
+				return;
+			}
+			flushAll();
+			if (task.close)
+				task.archive.closeFiles();
+			task.done.complete(null);
+		} catch (Exception e) {
+			LoggingService.logWarning(MODULE_NAME, "unable to archive message --> " + e.getMessage());
+			task.done.completeExceptionally(e);
+		}
+	}
+
+	private void flushAll() {
+		// archives with messages waiting to be forced to the disk stay dirty
+		dirtyArchives.removeIf(archive -> {
+			try {
+				return !archive.flush();
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME, "unable to archive message --> " + e.getMessage());
+				return true;
+			}
+		});
+		bufferedBytes = 0;
+		lastFlush = System.currentTimeMillis();
+	}
+
+	private static class Task {
+		private final MessageArchive archive;
+		private final List<byte[]> messages;
+		private final long timestamp;
+		private final boolean close;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		Task(MessageArchive archive, List<byte[]> messages, long timestamp, boolean close) {
+			this.archive = archive;
+			this.messages = messages;
+			this.timestamp = timestamp;
+			this.close = close;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * CRC-32C (Castagnoli) checksum, computed 8 bytes at a time with slicing tables
+ * java.util.zip.CRC32C is not available before Java 9.
+ *
+ */
+final class Crc32c {
+	private static final int POLYNOMIAL = 0x82F63B78;
+	private static final int[][] TABLES = new int[8][256];
+
+	static {
+		for (int value = 0; value < 256; value++) {
+			int crc = value;
+			for (int bit = 0; bit < 8; bit++)
+				crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+			TABLES[0][value] = crc;
+		}
+		for (int value = 0; value < 256; value++)
+			for (int table = 1; table < 8; table++)
+				TABLES[table][value] = (TABLES[table - 1][value] >>> 8) ^ TABLES[0][TABLES[table - 1][value] & 0xFF];
+	}
+
+	private int crc = 0xFFFFFFFF;
+
+	void reset() {
+		crc = 0xFFFFFFFF;
+	}
+
+	int getValue() {
+		return ~crc;
+	}
+
+	void update(byte[] bytes, int offset, int length) {
+		int value = crc;
+		int end = offset + length;
+		for (; offset + 8 <= end; offset += 8) {
+			int low = value ^ ((bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+					| (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24);
+			value = slice(low, bytes[offset + 4] & 0xFF, bytes[offset + 5] & 0xFF, bytes[offset + 6] & 0xFF, bytes[offset + 7] & 0xFF);
+		}
+		for (; offset < end; offset++)
+			value = (value >>> 8) ^ TABLES[0][(value ^ bytes[offset]) & 0xFF];
+		crc = value;
+	}
+
+	void update(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+			return;
+		}
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		int value = crc;
+		while (buffer.remaining() >= 8) {
+			long word = buffer.getLong();
+			int high = (int) (word >>> 32);
+			value = slice(value ^ (int) word, high & 0xFF, (high >>> 8) & 0xFF, (high >>> 16) & 0xFF, high >>> 24);
+		}
+		while (buffer.hasRemaining())
+			value = (value >>> 8) ^ TABLES[0][(value ^ buffer.get()) & 0xFF];
+		buffer.order(order);
+		crc = value;
+	}
+
+	void updateLong(long value) {
+		for (int shift = 56; shift >= 0; shift -= 8)
+			crc = (crc >>> 8) ^ TABLES[0][(crc ^ (int) (value >>> shift)) & 0xFF];
+	}
+
+	private static int slice(int low, int byte4, int byte5, int byte6, int byte7) {
+		return TABLES[7][low & 0xFF] ^ TABLES[6][(low >>> 8) & 0xFF] ^ TABLES[5][(low >>> 16) & 0xFF] ^ TABLES[4][low >>> 24]
+				^ TABLES[3][byte4] ^ TABLES[2][byte5] ^ TABLES[1][byte6] ^ TABLES[0][byte7];
+	}
+}
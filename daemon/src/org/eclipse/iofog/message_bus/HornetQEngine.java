@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.iofog.microservice.Microservice;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSession.QueueQuery;
+
+/**
+ * {@link MessageBusEngine} on top of HornetQ server
+ * every publisher has its own address and every receiver has its own queue bound to it,
+ * so a published message is stored once and routed to queues of its receivers without filtering
+ * 
+ */
+public class HornetQEngine implements MessageBusEngine {
+	private static final String MODULE_NAME = "HornetQ Engine";
+
+	private final MessageBusServer server;
+	private final Map<String, HornetQConsumer> consumers = new ConcurrentHashMap<>();
+	private final Map<String, HornetQProducer> producers = new ConcurrentHashMap<>();
+
+	public HornetQEngine(MessageBusServer server) {
+		this.server = server;
+	}
+
+	/**
+	 * returns address which publisher {@link Microservice} sends to
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 * @return address
+	 */
+	static String getAddress(String publisher) {
+		return Constants.address + "." + publisher;
+	}
+
+	/**
+	 * returns name of the queue of receiver {@link Microservice} for messages of a publisher
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 * @param receiver - ID of receiver {@link Microservice}
+	 * @return queue name
+	 */
+	static String getQueueName(String publisher, String receiver) {
+		return getAddress(publisher) + "." + receiver;
+	}
+
+	@Override
+	public void createProducer(String publisher) throws Exception {
+		MessageBusShard shard = MessageBusServer.getShard(publisher);
+		ClientProducer producer = shard.getProducerSession().createProducer(getAddress(publisher));
+		producers.put(publisher, new HornetQProducer(getAddress(publisher), producer, shard, server));
+	}
+
+	@Override
+	public MessageBusProducer getProducer(String publisher) {
+		if (!producers.containsKey(publisher))
+			try {
+				createProducer(publisher);
+			} catch (Exception e) {
+				return null;
+			}
+		return producers.get(publisher);
+	}
+
+	@Override
+	public boolean isProducerClosed(String publisher) {
+		HornetQProducer producer = producers.get(publisher);
+		return producer == null || producer.isClosed();
+	}
+
+	@Override
+	public void removeProducer(String publisher) {
+		producers.remove(publisher);
+	}
+
+	@Override
+	public void createConsumer(String publisher, String receiver) throws Exception {
+		ClientSession session = MessageBusServer.getSession();
+		String queueName = getQueueName(publisher, receiver);
+		QueueQuery queueQuery = session.queueQuery(new SimpleString(queueName));
+		if (!queueQuery.isExists())
+			session.createQueue(getAddress(publisher), queueName, false);
+		ClientSession shardSession = MessageBusServer.getShard(receiver).getSession();
+		ClientConsumer consumer = shardSession.createConsumer(queueName, null, Configuration.getConsumerWindowSizeBytes(), -1, false);
+		consumers.put(queueName, new HornetQConsumer(consumer, shardSession));
+	}
+
+	@Override
+	public MessageBusConsumer getConsumer(String publisher, String receiver) {
+		String queueName = getQueueName(publisher, receiver);
+		if (!consumers.containsKey(queueName))
+			try {
+				createConsumer(publisher, receiver);
+			} catch (Exception e) {
+				return null;
+			}
+		return consumers.get(queueName);
+	}
+
+	@Override
+	public boolean isConsumerClosed(String publisher, String receiver) {
+		HornetQConsumer consumer = consumers.get(getQueueName(publisher, receiver));
+		return consumer == null || consumer.isClosed();
+	}
+
+	@Override
+	public void removeConsumer(String publisher, String receiver) {
+		String queueName = getQueueName(publisher, receiver);
+		consumers.remove(queueName);
+		try {
+			MessageBusServer.getSession().deleteQueue(queueName);
+		} catch (HornetQException e) {
+			LoggingService.logWarning(MODULE_NAME, e.getMessage());
+		}
+	}
+
+	@Override
+	public void setMemoryLimit() {
+		server.setMemoryLimit();
+	}
+
+	@Override
+	public void close() {
+		consumers.values().forEach(HornetQConsumer::close);
+		consumers.clear();
+		producers.values().forEach(HornetQProducer::close);
+		producers.clear();
+	}
+
+	/**
+	 * sends messages of a publisher to its address
+	 * 
+	 */
+	private static class HornetQProducer implements MessageBusProducer {
+		private final String address;
+		private final ClientProducer producer;
+		private final MessageBusShard shard;
+		private final MessageBusServer server;
+
+		HornetQProducer(String address, ClientProducer producer, MessageBusShard shard, MessageBusServer server) {
+			this.address = address;
+			this.producer = producer;
+			this.shard = shard;
+			this.server = server;
+		}
+
+		@Override
+		public void send(byte[] message) throws Exception {
+			send(Collections.singletonList(message));
+		}
+
+		/**
+		 * sends messages in one transaction of the shard producer session,
+		 * so a batch is committed at once and stays in order with other messages of the same publisher.
+		 * if sending or commit fails, none of the messages is delivered
+		 * 
+		 */
+		@Override
+		public void send(List<byte[]> messages) throws Exception {
+			ClientSession session = shard.getProducerSession();
+			synchronized (session) {
+				try {
+					for (byte[] message : messages)
+						producer.send(createMessage(session, message));
+					session.commit();
+				} catch (Exception e) {
+					try {
+						session.rollback();
+					} catch (HornetQException rollbackException) {
+						LoggingService.logWarning(MODULE_NAME, "unable to roll back --> " + rollbackException.getMessage());
+					}
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * creates a {@link ClientMessage} carrying encoded {@link Message} in its body
+		 * priority of {@link Message} is mapped onto priority of {@link ClientMessage},
+		 * so queues deliver higher priority messages first.
+		 * when message TTL is set, the broker expires messages waiting longer
+		 * 
+		 * @param session - {@link ClientSession} to create message
+		 * @param bytes - encoded {@link Message}
+		 * @return {@link ClientMessage}
+		 */
+		private static ClientMessage createMessage(ClientSession session, byte[] bytes) {
+			ClientMessage msg = session.createMessage(false);
+			msg.setPriority(PriorityLanes.getBusPriority(MessageView.priority(bytes)));
+			if (Configuration.getMessageTtl() > 0)
+				msg.setExpiration(MessageView.timestamp(bytes) + Configuration.getMessageTtl());
+			msg.getBodyBuffer().writeBytes(bytes);
+			return msg;
+		}
+
+		/**
+		 * returns free space left of the memory limit, which all publisher addresses share
+		 * 
+		 */
+		@Override
+		public long getCredit() {
+			return server.getAddressCredit(address);
+		}
+
+		@Override
+		public boolean isClosed() {
+			return producer.isClosed();
+		}
+
+		@Override
+		public void close() {
+			try {
+				producer.close();
+			} catch (HornetQException e) {
+				LoggingService.logInfo(MODULE_NAME, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * receives messages from queue of a receiver
+	 * 
+	 */
+	private static class HornetQConsumer implements MessageBusConsumer {
+		private final ClientConsumer consumer;
+		private final ClientSession session;
+
+		HornetQConsumer(ClientConsumer consumer, ClientSession session) {
+			this.consumer = consumer;
+			this.session = session;
+		}
+
+		/**
+		 * receives on the shard consumer session under its lock, which consumers of the shard share
+		 * 
+		 */
+		@Override
+		public byte[] receive() throws Exception {
+			ClientMessage msg;
+			synchronized (session) {
+				msg = consumer.receiveImmediate();
+				if (msg == null)
+					return null;
+				msg.acknowledge();
+			}
+			return getBody(msg);
+		}
+
+		@Override
+		public void setListener(MessageListener listener) throws Exception {
+			if (listener == null) {
+				if (!consumer.isClosed() && consumer.getMessageHandler() != null)
+					consumer.setMessageHandler(null);
+				return;
+			}
+			if (consumer.isClosed())
+				return;
+			consumer.setMessageHandler(msg -> {
+				try {
+					msg.acknowledge();
+				} catch (Exception exp) {
+					LoggingService.logWarning(MODULE_NAME, exp.getMessage());
+				}
+				listener.onMessage(getBody(msg));
+			});
+		}
+
+		/**
+		 * reads encoded {@link Message} from body of {@link ClientMessage}
+		 * 
+		 * @param msg - {@link ClientMessage}
+		 * @return encoded {@link Message}
+		 */
+		private static byte[] getBody(ClientMessage msg) {
+			HornetQBuffer body = msg.getBodyBuffer();
+			byte[] bytes = new byte[body.readableBytes()];
+			body.readBytes(bytes);
+			return bytes;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return consumer.isClosed();
+		}
+
+		@Override
+		public void close() {
+			try {
+				consumer.close();
+			} catch (HornetQException e) {
+				LoggingService.logInfo(MODULE_NAME, e.getMessage());
+			}
+		}
+	}
+}
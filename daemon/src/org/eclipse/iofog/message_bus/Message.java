@@ -12,26 +12,26 @@
  *******************************************************************************/
 package org.eclipse.iofog.message_bus;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Base64;
 import javax.json.Json;
 import javax.json.JsonObject;
 
-import org.eclipse.iofog.utils.BytesUtil;
-import org.eclipse.iofog.utils.logging.LoggingService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
 
 /**
  * represents IOMessage
+ * fields of a message built from raw bytes are decoded on first access
+ * getters may be called from several threads, setters must not race with other accessors
  * 
  * @author saeid
  *
  */
 public class Message {
-	private static final short VERSION = 4;
+	private static final short VERSION = MessageView.VERSION;
 	private static final String MODULE_NAME = "Message";
 
 	private String id;
@@ -55,6 +55,10 @@ public class Message {
 	private byte[] contextData;
 	private byte[] contentData;
 
+	private MessageView view;
+	private volatile int decoded;
+	private boolean modified;
+
 	public Message() {
 		version = VERSION;
 		id = null;
@@ -130,526 +134,315 @@ public class Message {
 	}
 
 	public Message(byte[] rawBytes) {
-		super();
-
-		version = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 0, 2));
-		if (version != VERSION) {
-			// TODO: incompatible version
-			return;
-		}
-
-		int pos = 33;
-
-		int size = rawBytes[2];
-		if (size > 0) {
-			id = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 3, 5));
-		if (size > 0) {
-			tag = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[5];
-		if (size > 0) {
-			messageGroupId = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[6];
-		if (size > 0) {
-			sequenceNumber = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[7];
-		if (size > 0) {
-			sequenceTotal = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[8];
-		if (size > 0) {
-			priority = rawBytes[pos];
-			pos += size;
-		}
-
-		size = rawBytes[9];
-		if (size > 0) {
-			timestamp = BytesUtil.bytesToLong(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[10];
-		if (size > 0) {
-			publisher = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 11, 13));
-		if (size > 0) {
-			authIdentifier = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 13, 15));
-		if (size > 0) {
-			authGroup = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[15];
-		if (size > 0) {
-			chainPosition = BytesUtil.bytesToLong(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 16, 18));
-		if (size > 0) {
-			hash = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 18, 20));
-		if (size > 0) {
-			previousHash = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 20, 22));
-		if (size > 0) {
-			nonce = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[22];
-		if (size > 0) {
-			difficultyTarget = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[23];
-		if (size > 0) {
-			infoType = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[24];
-		if (size > 0) {
-			infoFormat = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, 25, 29));
-		if (size > 0) {
-			contextData = BytesUtil.copyOfRange(rawBytes, pos, pos + size);
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, 29, 33));
-		if (size > 0) {
-			contentData = BytesUtil.copyOfRange(rawBytes, pos, pos + size);
-		}
+		this(view(rawBytes));
 	}
 
 	public Message(byte[] header, byte[] data) {
+		this(new MessageView(Unpooled.wrappedBuffer(header, data)));
+	}
+
+	/**
+	 * keeps the view and decodes each field on its first access
+	 *
+	 * @param view - {@link MessageView} owned by this message, null leaves all fields empty
+	 */
+	Message(MessageView view) {
 		super();
 
-		version = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 0, 2));
+		if (view == null)
+			return;
+
+		version = view.getVersion();
 		if (version != VERSION) {
 			// TODO: incompatible version
 			return;
 		}
 
-		int pos = 0;
-
-		int size = header[2];
-		if (size > 0) {
-			id = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 3, 5));
-		if (size > 0) {
-			tag = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[5];
-		if (size > 0) {
-			messageGroupId = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[6];
-		if (size > 0) {
-			sequenceNumber = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[7];
-		if (size > 0) {
-			sequenceTotal = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[8];
-		if (size > 0) {
-			priority = data[pos];
-			pos += size;
-		}
-
-		size = header[9];
-		if (size > 0) {
-			timestamp = BytesUtil.bytesToLong(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[10];
-		if (size > 0) {
-			publisher = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 11, 13));
-		if (size > 0) {
-			authIdentifier = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 13, 15));
-		if (size > 0) {
-			authGroup = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[15];
-		if (size > 0) {
-			chainPosition = BytesUtil.bytesToLong(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 16, 18));
-		if (size > 0) {
-			hash = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 18, 20));
-		if (size > 0) {
-			previousHash = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 20, 22));
-		if (size > 0) {
-			nonce = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[22];
-		if (size > 0) {
-			difficultyTarget = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
+		this.view = view;
+	}
 
-		size = header[23];
-		if (size > 0) {
-			infoType = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
+	/**
+	 * wraps raw bytes of a {@link Message}
+	 *
+	 * @param rawBytes - encoded {@link Message}
+	 * @return {@link MessageView} or null if bytes are too short, truncated or corrupted
+	 */
+	private static MessageView view(byte[] rawBytes) {
+		if (rawBytes == null || rawBytes.length < MessageView.HEADER_SIZE)
+			return null;
+		try {
+			return MessageView.wrap(rawBytes);
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
+	}
 
-		size = header[24];
-		if (size > 0) {
-			infoFormat = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
+	/**
+	 * checks whether field still has to be read from the view
+	 *
+	 * @param field - index of the field in {@link MessageView}
+	 * @return boolean
+	 */
+	private boolean pending(int field) {
+		return view != null && (decoded & (1 << field)) == 0;
+	}
 
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 25, 29));
-		if (size > 0) {
-			contextData = BytesUtil.copyOfRange(data, pos, pos + size);
-			pos += size;
-		}
+	/**
+	 * marks field as decoded
+	 * must be called after the field is assigned, so a thread which sees the bit also sees the value
+	 *
+	 * @param field - index of the field in {@link MessageView}
+	 */
+	private void decoded(int field) {
+		decoded |= 1 << field;
+	}
 
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 29, 33));
-		if (size > 0) {
-			contentData = BytesUtil.copyOfRange(data, pos, pos + size);
-		}
+	private void modified(int field) {
+		decoded |= 1 << field;
+		modified = true;
 	}
 
 	public String getId() {
+		if (pending(MessageView.ID)) {
+			id = view.getId();
+			decoded(MessageView.ID);
+		}
 		return id;
 	}
 	public void setId(String id) {
+		modified(MessageView.ID);
 		this.id = id;
 	}
 	public String getTag() {
+		if (pending(MessageView.TAG)) {
+			tag = view.getTag();
+			decoded(MessageView.TAG);
+		}
 		return tag;
 	}
 	public void setTag(String tag) {
+		modified(MessageView.TAG);
 		this.tag = tag;
 	}
 	public String getMessageGroupId() {
+		if (pending(MessageView.GROUP_ID)) {
+			messageGroupId = view.getMessageGroupId();
+			decoded(MessageView.GROUP_ID);
+		}
 		return messageGroupId;
 	}
 	public void setMessageGroupId(String messageGroupId) {
+		modified(MessageView.GROUP_ID);
 		this.messageGroupId = messageGroupId;
 	}
 	public int getSequenceNumber() {
+		if (pending(MessageView.SEQUENCE_NUMBER)) {
+			sequenceNumber = view.getSequenceNumber();
+			decoded(MessageView.SEQUENCE_NUMBER);
+		}
 		return sequenceNumber;
 	}
 	public void setSequenceNumber(int sequenceNumber) {
+		modified(MessageView.SEQUENCE_NUMBER);
 		this.sequenceNumber = sequenceNumber;
 	}
 	public int getSequenceTotal() {
+		if (pending(MessageView.SEQUENCE_TOTAL)) {
+			sequenceTotal = view.getSequenceTotal();
+			decoded(MessageView.SEQUENCE_TOTAL);
+		}
 		return sequenceTotal;
 	}
 	public void setSequenceTotal(int sequenceTotal) {
+		modified(MessageView.SEQUENCE_TOTAL);
 		this.sequenceTotal = sequenceTotal;
 	}
 	public byte getPriority() {
+		if (pending(MessageView.PRIORITY)) {
+			priority = view.getPriority();
+			decoded(MessageView.PRIORITY);
+		}
 		return priority;
 	}
 	public void setPriority(byte priority) {
+		modified(MessageView.PRIORITY);
 		this.priority = priority;
 	}
 	public long getTimestamp() {
+		if (pending(MessageView.TIMESTAMP)) {
+			timestamp = view.getTimestamp();
+			decoded(MessageView.TIMESTAMP);
+		}
 		return timestamp;
 	}
 	public void setTimestamp(long timestamp) {
+		modified(MessageView.TIMESTAMP);
 		this.timestamp = timestamp;
 	}
 	public String getPublisher() {
+		if (pending(MessageView.PUBLISHER)) {
+			publisher = view.getPublisher();
+			decoded(MessageView.PUBLISHER);
+		}
 		return publisher;
 	}
 	public void setPublisher(String publisher) {
+		modified(MessageView.PUBLISHER);
 		this.publisher = publisher;
 	}
 	public String getAuthIdentifier() {
+		if (pending(MessageView.AUTH_IDENTIFIER)) {
+			authIdentifier = view.getAuthIdentifier();
+			decoded(MessageView.AUTH_IDENTIFIER);
+		}
 		return authIdentifier;
 	}
 	public void setAuthIdentifier(String authIdentifier) {
+		modified(MessageView.AUTH_IDENTIFIER);
 		this.authIdentifier = authIdentifier;
 	}
 	public String getAuthGroup() {
+		if (pending(MessageView.AUTH_GROUP)) {
+			authGroup = view.getAuthGroup();
+			decoded(MessageView.AUTH_GROUP);
+		}
 		return authGroup;
 	}
 	public void setAuthGroup(String authGroup) {
+		modified(MessageView.AUTH_GROUP);
 		this.authGroup = authGroup;
 	}
 	public short getVersion() {
 		return version;
 	}
 	public long getChainPosition() {
+		if (pending(MessageView.CHAIN_POSITION)) {
+			chainPosition = view.getChainPosition();
+			decoded(MessageView.CHAIN_POSITION);
+		}
 		return chainPosition;
 	}
 	public void setChainPosition(long chainPosition) {
+		modified(MessageView.CHAIN_POSITION);
 		this.chainPosition = chainPosition;
 	}
 	public String getHash() {
+		if (pending(MessageView.HASH)) {
+			hash = view.getHash();
+			decoded(MessageView.HASH);
+		}
 		return hash;
 	}
 	public void setHash(String hash) {
+		modified(MessageView.HASH);
 		this.hash = hash;
 	}
 	public String getPreviousHash() {
+		if (pending(MessageView.PREVIOUS_HASH)) {
+			previousHash = view.getPreviousHash();
+			decoded(MessageView.PREVIOUS_HASH);
+		}
 		return previousHash;
 	}
 	public void setPreviousHash(String previousHash) {
+		modified(MessageView.PREVIOUS_HASH);
 		this.previousHash = previousHash;
 	}
 	public String getNonce() {
+		if (pending(MessageView.NONCE)) {
+			nonce = view.getNonce();
+			decoded(MessageView.NONCE);
+		}
 		return nonce;
 	}
 	public void setNonce(String nonce) {
+		modified(MessageView.NONCE);
 		this.nonce = nonce;
 	}
 	public int getDifficultyTarget() {
+		if (pending(MessageView.DIFFICULTY_TARGET)) {
+			difficultyTarget = view.getDifficultyTarget();
+			decoded(MessageView.DIFFICULTY_TARGET);
+		}
 		return difficultyTarget;
 	}
 	public void setDifficultyTarget(int difficultyTarget) {
+		modified(MessageView.DIFFICULTY_TARGET);
 		this.difficultyTarget = difficultyTarget;
 	}
 	public String getInfoType() {
+		if (pending(MessageView.INFO_TYPE)) {
+			infoType = view.getInfoType();
+			decoded(MessageView.INFO_TYPE);
+		}
 		return infoType;
 	}
 	public void setInfoType(String infoType) {
+		modified(MessageView.INFO_TYPE);
 		this.infoType = infoType;
 	}
 	public String getInfoFormat() {
+		if (pending(MessageView.INFO_FORMAT)) {
+			infoFormat = view.getInfoFormat();
+			decoded(MessageView.INFO_FORMAT);
+		}
 		return infoFormat;
 	}
 	public void setInfoFormat(String infoFormat) {
+		modified(MessageView.INFO_FORMAT);
 		this.infoFormat = infoFormat;
 	}
 	public byte[] getContextData() {
+		if (pending(MessageView.CONTEXT_DATA)) {
+			contextData = view.getBytes(MessageView.CONTEXT_DATA);
+			decoded(MessageView.CONTEXT_DATA);
+		}
 		return contextData;
 	}
 	public void setContextData(byte[] contextData) {
+		modified(MessageView.CONTEXT_DATA);
 		this.contextData = contextData;
 	}
 	public byte[] getContentData() {
+		if (pending(MessageView.CONTENT_DATA)) {
+			contentData = view.getBytes(MessageView.CONTENT_DATA);
+			decoded(MessageView.CONTENT_DATA);
+		}
 		return contentData;
 	}
 	public void setContentData(byte[] contentData) {
+		modified(MessageView.CONTENT_DATA);
 		this.contentData = contentData;
 	}
 
-	private int getLength(String str) {
-		if (str == null)
-			return 0;
-		else
-			return str.length();
-	}
-
 	public byte[] getBytes() {
-		try (ByteArrayOutputStream headerBaos = new ByteArrayOutputStream();
-			 ByteArrayOutputStream dataBaos = new ByteArrayOutputStream()){
-			//version
-			headerBaos.write(BytesUtil.shortToBytes(VERSION));
-
-			// id
-			int len = getLength(getId());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getId()));
-
-			// tag
-			len = getLength(getTag());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getTag()));
-
-			//groupid
-			len = getLength(getMessageGroupId());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getMessageGroupId()));
-
-			// seq no
-			if (getSequenceNumber() == 0)
-				headerBaos.write(0);
-			else {
-				dataBaos.write(BytesUtil.integerToBytes(getSequenceNumber()));
-				headerBaos.write(4);
-			}
-
-			// seq total
-			if (getSequenceTotal() == 0)
-				headerBaos.write(0);
-			else {
-				dataBaos.write(BytesUtil.integerToBytes(getSequenceTotal()));
-				headerBaos.write(4);
-			}
-
-
-			// priority
-			if (getPriority() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(1);
-				dataBaos.write(getPriority());
-			}
-
-			//timestamp
-			if (getTimestamp() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(8);
-				dataBaos.write(BytesUtil.longToBytes(getTimestamp()));
-			}
-
-			// publisher
-			len = getLength(getPublisher());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getPublisher()));
-
-			// authIdentifier
-			len = getLength(getAuthIdentifier());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getAuthIdentifier()));
-
-			// authGroup
-			len = getLength(getAuthGroup());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getAuthGroup()));
-
-			// chainPosition
-			if (getChainPosition() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(8);
-				dataBaos.write(BytesUtil.longToBytes(getChainPosition()));
-			}
-
-			// hash
-			len = getLength(getHash());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getHash()));
-
-			// previousHash
-			len = getLength(getPreviousHash());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getPreviousHash()));
-
-			// nonce
-			len = getLength(getNonce());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0) 
-				dataBaos.write(BytesUtil.stringToBytes(getNonce()));
-
-			// difficultyTarget
-			if (getDifficultyTarget() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(4);
-				dataBaos.write(BytesUtil.integerToBytes(getDifficultyTarget()));
-			}
-
-			// infoType
-			len = getLength(getInfoType());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getInfoType()));
-
-			// infoFormat
-			len = getLength(getInfoFormat());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getInfoFormat()));
-
-			// contextData
-			if (getContextData() == null)
-				headerBaos.write(BytesUtil.integerToBytes(0));
-			else {
-				headerBaos.write(BytesUtil.integerToBytes(getContextData().length));
-				dataBaos.write(getContextData());
-			}
-
-			// contentData
-			if (getContentData() == null)
-				headerBaos.write(BytesUtil.integerToBytes(0));
-			else {
-				headerBaos.write(BytesUtil.integerToBytes(getContentData().length));
-				dataBaos.write(getContentData());
-			}
-
-			ByteArrayOutputStream result = new ByteArrayOutputStream();
-			headerBaos.writeTo(result);
-			dataBaos.writeTo(result);
-			return result.toByteArray();
-		} catch (IOException exc) {
-			LoggingService.logWarning(MODULE_NAME, exc.getMessage());
-		}
-
-		return new byte[] {};
+		if (view != null && !modified) {
+			ByteBuf raw = view.slice();
+			byte[] result = new byte[raw.readableBytes()];
+			raw.getBytes(raw.readerIndex(), result);
+			return result;
+		}
+		return rawBytes();
+	}
+
+	/**
+	 * returns encoded message without copying the bytes it was built from
+	 * returned array must not be modified as it may be shared with the view
+	 *
+	 * @return byte[]
+	 */
+	byte[] rawBytes() {
+		if (view != null && !modified) {
+			ByteBuf raw = view.slice();
+			if (raw.hasArray() && raw.arrayOffset() == 0 && raw.array().length == raw.readableBytes())
+				return raw.array();
+			byte[] result = new byte[raw.readableBytes()];
+			raw.getBytes(raw.readerIndex(), result);
+			return result;
+		}
+		byte[] result = new byte[MessageView.encodedLength(this)];
+		MessageView.encode(this, Unpooled.wrappedBuffer(result).writerIndex(0));
+		return result;
 	}
 
 	@Override
@@ -661,26 +454,15 @@ public class Message {
 		Message result;
 		try {
 			result = new Message(Base64.getDecoder().decode(bytes));
-			id = result.id;
-			tag = result.tag;
-			messageGroupId = result.messageGroupId;
-			sequenceNumber = result.sequenceNumber;
-			sequenceTotal = result.sequenceTotal;
-			priority = result.priority;
-			timestamp = result.timestamp;
-			publisher = result.publisher;
-			authIdentifier = result.authIdentifier;
-			authGroup = result.authGroup;
+			id = tag = messageGroupId = publisher = authIdentifier = authGroup = null;
+			hash = previousHash = nonce = infoType = infoFormat = null;
+			sequenceNumber = sequenceTotal = difficultyTarget = priority = 0;
+			timestamp = chainPosition = 0;
+			contextData = contentData = null;
 			version = result.version;
-			chainPosition = result.chainPosition;
-			hash = result.hash;
-			previousHash = result.previousHash;
-			nonce = result.nonce;
-			difficultyTarget = result.difficultyTarget;
-			infoType = result.infoType;
-			infoFormat = result.infoFormat;
-			contextData = result.contextData;
-			contentData = result.contentData;
+			view = result.view;
+			decoded = 0;
+			modified = false;
 		} catch (Exception exp) {
 			logWarning(MODULE_NAME, exp.getMessage());
 		}
@@ -688,32 +470,32 @@ public class Message {
 
 	public JsonObject toJson() {
 		return Json.createObjectBuilder()
-				.add("id", id == null ? "" : id)
-				.add("tag", tag == null ? "" : tag)
-				.add("groupid", messageGroupId == null ? "" : messageGroupId)
-				.add("sequencenumber", sequenceNumber)
-				.add("sequencetotal", sequenceTotal)
-				.add("priority", priority)
-				.add("timestamp", timestamp)
-				.add("publisher", publisher == null ? "" : publisher)
-				.add("authid", authIdentifier == null ? "" : authIdentifier)
-				.add("authgroup", authGroup == null ? "" : authGroup)
+				.add("id", getId() == null ? "" : getId())
+				.add("tag", getTag() == null ? "" : getTag())
+				.add("groupid", getMessageGroupId() == null ? "" : getMessageGroupId())
+				.add("sequencenumber", getSequenceNumber())
+				.add("sequencetotal", getSequenceTotal())
+				.add("priority", getPriority())
+				.add("timestamp", getTimestamp())
+				.add("publisher", getPublisher() == null ? "" : getPublisher())
+				.add("authid", getAuthIdentifier() == null ? "" : getAuthIdentifier())
+				.add("authgroup", getAuthGroup() == null ? "" : getAuthGroup())
 				.add("version", version)
-				.add("chainposition", chainPosition)
-				.add("hash", hash == null ? "" : hash)
-				.add("previoushash", previousHash == null ? "" : previousHash)
-				.add("nonce", nonce == null ? "" : nonce)
-				.add("difficultytarget", difficultyTarget)
-				.add("infotype", infoType == null ? "" : infoType)
-				.add("infoformat", infoFormat == null ? "" : infoFormat)
-				.add("contextdata", contextData == null ? "" : new String(Base64.getEncoder().encode(contextData)))
-				.add("contentdata", contentData == null ? "" : new String(Base64.getEncoder().encode(contentData)))
+				.add("chainposition", getChainPosition())
+				.add("hash", getHash() == null ? "" : getHash())
+				.add("previoushash", getPreviousHash() == null ? "" : getPreviousHash())
+				.add("nonce", getNonce() == null ? "" : getNonce())
+				.add("difficultytarget", getDifficultyTarget())
+				.add("infotype", getInfoType() == null ? "" : getInfoType())
+				.add("infoformat", getInfoFormat() == null ? "" : getInfoFormat())
+				.add("contextdata", getContextData() == null ? "" : new String(Base64.getEncoder().encode(getContextData())))
+				.add("contentdata", getContentData() == null ? "" : new String(Base64.getEncoder().encode(getContentData())))
 				.build();
 	}
 
 	public byte[] encodeBase64() {
 		try {
-			return Base64.getEncoder().encode(this.getBytes());
+			return Base64.getEncoder().encode(rawBytes());
 		} catch (Exception exp) {
 			logWarning(MODULE_NAME, exp.getMessage());
 			return new byte[] {};
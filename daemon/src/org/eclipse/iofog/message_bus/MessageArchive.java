@@ -13,15 +13,10 @@
 package org.eclipse.iofog.message_bus;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 import org.eclipse.iofog.microservice.Microservice;
-import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.Constants;
 import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
@@ -35,216 +30,224 @@ import org.eclipse.iofog.utils.logging.LoggingService;
 public class MessageArchive implements AutoCloseable{
 	private static final String MODULE_NAME = "MessageArchive";
 
-	private static final byte HEADER_SIZE = 33;
-	private static final short MAXIMUM_MESSAGE_PER_FILE = 1000;
-	private static final int MAXIMUM_ARCHIVE_SIZE_MB = 1;
-
 	private final String name;
 	private String diskDirectory;
-	private String currentFileName;
-	private RandomAccessFile indexFile;
-	private RandomAccessFile dataFile;
+	private final ArchiveWriter writer;
+	private File resumeFile;
+	private volatile ArchiveSegment segment;
+	private ArchiveCatalog.Segment catalogSegment;
+	private int unsyncedRecords;
+	private long lastSync;
 	
 	public MessageArchive(String name) {
 		this.name = name;
+		this.writer = ArchiveWriter.getInstance();
 		init();
 	}
 	
 	/**
-	 * sets the file name for {@link Message} to be archived
+	 * finds the last segment to continue archiving into
+	 * and truncates records torn by a crash of the previous run
 	 * 
 	 */
 	private void init() {
-		currentFileName = "";
 		diskDirectory = Configuration.getDiskDirectory() + "messages/archive/";
 		
-		File lastFile = null;
-		long lastFileTimestamp = 0;
 		final File workingDirectory = new File(diskDirectory);
 		if (!workingDirectory.exists())
 			workingDirectory.mkdirs();
 		
-		FilenameFilter filter = (dir, fileName) -> fileName.substring(0, name.length()).equals(name)
-				&& fileName.substring(fileName.indexOf(".")).equals(".idx");
-		
-		for (File file : workingDirectory.listFiles(filter)) {
-			if (!file.isFile())
-				continue;
-			String filename = file.getName();
-			if (filename.substring(0, name.length()).equals(name)) {
-				String timestampStr = filename.substring(name.length() + 1, filename.indexOf("."));
-				long timestamp = Long.parseLong(timestampStr);
-				if (timestamp > lastFileTimestamp) {
-					lastFileTimestamp = timestamp;
-					lastFile = file; 
-				}
+		ArchiveCatalog.Segment last = ArchiveCatalog.getInstance().getLastSegment(name);
+		if (last != null) {
+			File lastFile = last.getIndexFile();
+			try {
+				int removed = ArchiveSegment.recover(lastFile);
+				if (removed > 0)
+					LoggingService.logWarning(MODULE_NAME, "removed " + removed + " torn records from " + lastFile.getName());
+				ArchiveCatalog.getInstance().segmentChanged(lastFile);
+				resumeFile = lastFile;
+			} catch (Exception exp) {
+				LoggingService.logWarning(MODULE_NAME, "unable to recover " + lastFile.getName() + " --> " + exp.getMessage());
 			}
 		}
-		
-		if (lastFileTimestamp > 0 && lastFile.length() < ((HEADER_SIZE + Long.BYTES) * MAXIMUM_MESSAGE_PER_FILE))
-			currentFileName = lastFile.getPath();
 	}
 	
 	/**
-	 * opens index and data file
+	 * opens segment to archive {@link Message} into
+	 * continues the last segment of previous run, if it is in current format and has free space
 	 * 
-	 * @param timestamp- timestamp of first {@link Message} in the file
+	 * @param timestamp - timestamp of first {@link Message} in the segment
+	 * @param dataSize - data size of first {@link Message} in the segment
 	 * @throws Exception
 	 */
-	private void openFiles(long timestamp) throws Exception {
-		if (currentFileName.equals(""))
-			currentFileName = diskDirectory + name + "_" + timestamp + ".idx";
-		indexFile = new RandomAccessFile(new File(currentFileName), "rw");
-		dataFile = new RandomAccessFile(new File(currentFileName.substring(0, currentFileName.indexOf(".")) + ".iomsg"), "rw");
+	private void openSegment(long timestamp, int dataSize) throws Exception {
+		int capacity = Math.max(Configuration.getArchiveSegmentSize() * Constants.MiB, dataSize);
+		if (resumeFile != null) {
+			segment = new ArchiveSegment(resumeFile);
+			resumeFile = null;
+			if (segment.resume(capacity)) {
+				catalogSegment = ArchiveCatalog.getInstance().segmentOpened(segment.getIndexFile());
+				if (segment.hasRoom(dataSize))
+					return;
+				closeSegment();
+			}
+		}
+
+		File indexFile = new File(diskDirectory + name + "_" + timestamp + ".idx");
+		while (indexFile.exists())
+			indexFile = new File(diskDirectory + name + "_" + (++timestamp) + ".idx");
+		segment = new ArchiveSegment(indexFile);
+		segment.create(capacity);
+		catalogSegment = ArchiveCatalog.getInstance().segmentOpened(indexFile);
 	}
 	
 	/**
-	 * archives {@link Message} to file. If size of the data file becomes more than
-	 * defined value, creates a new file 
+	 * closes current segment and queues it to be compressed, if archive compression is on
+	 * 
+	 * @throws Exception
+	 */
+	private void closeSegment() throws Exception {
+		if (!"never".equals(Configuration.getArchiveFsync()))
+			sync();
+		segment.close();
+		unsyncedRecords = 0;
+		ArchiveCatalog.getInstance().segmentChanged(segment.getIndexFile());
+		if (Configuration.isArchiveCompression())
+			ArchiveCompressor.getInstance().submit(segment.getIndexFile());
+	}
+
+	/**
+	 * archives {@link Message} to file in background. 
 	 * 
 	 * @param message - {@link Message} to be archived
 	 * @param timestamp - timestamp of the {@link Message}
 	 * @throws Exception
 	 */
 	void save(byte[] message, long timestamp) throws Exception {
-		if (indexFile == null)
-			openFiles(timestamp);
-		
-		if ((message.length + dataFile.length()) >= (MAXIMUM_ARCHIVE_SIZE_MB * 1_000_000)) {
-			close();
-			openFiles(timestamp);
-		}
-		indexFile.seek(indexFile.length());
-		dataFile.seek(dataFile.length());
-		long dataPos = dataFile.getFilePointer();
-		
-		indexFile.write(message, 0, HEADER_SIZE);
-		indexFile.writeLong(dataPos);
-		dataFile.write(message, HEADER_SIZE, message.length - HEADER_SIZE);
+		writer.append(this, Collections.singletonList(message), timestamp);
 	}
 	
 	/**
-	 * closes index and data files
+	 * archives a batch of {@link Message} in background
 	 * 
+	 * @param messages - raw bytes of {@link Message} to be archived
+	 * @param timestamp - timestamp of the batch
+	 * @throws Exception
 	 */
-	public void close() {
+	void save(List<byte[]> messages, long timestamp) throws Exception {
+		writer.append(this, messages, timestamp);
+	}
+
+	/**
+	 * appends {@link Message} to the mapped segment. If there is no room for the {@link Message},
+	 * closes the segment and opens a new one. Called by {@link ArchiveWriter} only
+	 * 
+	 * @param messages - raw bytes of {@link Message} to be archived
+	 * @param timestamp - timestamp of messages
+	 * @return number of appended bytes
+	 * @throws Exception
+	 */
+	long append(List<byte[]> messages, long timestamp) throws Exception {
+		long bytes = 0;
+		for (byte[] message : messages) {
+			int dataSize = message.length - MessageView.HEADER_SIZE;
+			if (segment == null) {
+				openSegment(timestamp, dataSize);
+			} else if (!segment.hasRoom(dataSize)) {
+				closeSegment();
+				openSegment(timestamp, dataSize);
+			}
+			segment.append(message);
+			bytes += message.length + Long.BYTES;
+			if (++unsyncedRecords >= Configuration.getArchiveFsyncRecords() && Configuration.getArchiveFsyncRecords() > 0)
+				sync();
+		}
+		return bytes;
+	}
+
+	/**
+	 * makes appended {@link Message} visible to queries 
+	 * and forces them to the disk, if fsync interval has elapsed. Called by {@link ArchiveWriter} only
+	 * 
+	 * @return true if there are {@link Message} waiting to be forced to the disk
+	 * @throws Exception
+	 */
+	boolean flush() throws Exception {
+		if (segment == null)
+			return false;
+		long interval = Configuration.getArchiveFsyncIntervalMillis();
+		if (interval > 0 && unsyncedRecords > 0 && System.currentTimeMillis() - lastSync >= interval)
+			sync();
+		else
+			segment.flush();
+		ArchiveCatalog.getInstance().segmentAppended(catalogSegment, segment.getRecords(), 
+				segment.getMinimumTimestamp(), segment.getMaximumTimestamp(), segment.getContentSize());
+		return interval > 0 && unsyncedRecords > 0;
+	}
+
+	private void sync() throws Exception {
+		segment.sync();
+		unsyncedRecords = 0;
+		lastSync = System.currentTimeMillis();
+	}
+
+	/**
+	 * truncates and closes current segment. Called by {@link ArchiveWriter} only
+	 * 
+	 */
+	void closeFiles() {
 		try {
-			currentFileName = "";
-			if (indexFile != null)
-				indexFile.close();
-			if (dataFile != null)
-				dataFile.close();
-			currentFileName = "";
+			if (segment != null)
+				closeSegment();
 		} catch (Exception exp) {
 			LoggingService.logWarning(MODULE_NAME, exp.getMessage());
 		}
+		segment = null;
 	}
-	
+
 	/**
-	 * computes {@link Message} size
+	 * writes queued {@link Message} and closes index and data files
 	 * 
-	 * @param header - header of the {@link Message}
-	 * @return int
 	 */
-	private int getDataSize(byte[] header) {
-		int size;
-		size = header[2];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 3, 5));
-		size += header[5];
-		size += header[6];
-		size += header[7];
-		size += header[8];
-		size += header[9];
-		size += header[10];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 11, 13));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 13, 15));
-		size += header[15];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 16, 18));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 18, 20));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 20, 22));
-		size += header[22];
-		size += header[23];
-		size += header[24];
-		size += BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 25, 29));
-		size += BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 29, 33));
-		return size;
+	public void close() {
+		try {
+			writer.close(this);
+		} catch (Exception exp) {
+			LoggingService.logWarning(MODULE_NAME, exp.getMessage());
+		}
 	}
-
+	
 	/**
-	 *
-	 *
-	 * @return
-     */
-	private long freeMemory() {
-		Runtime runtime = Runtime.getRuntime();
-		return runtime.maxMemory() - ((runtime.totalMemory() - runtime.freeMemory()));
+	 * returns size of index file which is safe to read
+	 * segment being appended is read up to its flushed part
+	 * 
+	 * @param indexFile - index file of segment
+	 * @return size in bytes
+	 */
+	long getIndexSize(File indexFile) {
+		ArchiveSegment active = segment;
+		if (active != null && active.getIndexFile().equals(indexFile))
+			return active.getCommittedIndexSize();
+		return indexFile.length();
 	}
 
 	/**
-	 * retrieves list of {@link Message} sent by this {@link Microservice} within the time frame
+	 * retrieves {@link Message} sent by this {@link Microservice} within the time frame
 	 * 
 	 * @param from - beginning of time frame in milliseconds
 	 * @param to - end of time frame in milliseconds
-	 * @return list of {@link Message}
+	 * @param filter - {@link ArchiveFilter} or null
+	 * @param continuationToken - token returned by previous query to continue it, or null
+	 * @return {@link ArchiveCursor}
 	 */
-	public List<Message> messageQuery(long from, long to) {
-		boolean outOfMemory = false;
-		List<Message> result = new ArrayList<>();
-		
-		File workingDirectory = new File(diskDirectory);
-		FilenameFilter filter = (dir, fileName) -> fileName.substring(0, name.length()).equals(name)
-				&& fileName.substring(fileName.indexOf(".")).equals(".idx");
-		File[] listOfFiles = workingDirectory.listFiles(filter);
-		Arrays.sort(listOfFiles);
-		
-		Stack<File> resultSet = new Stack<>();
-		int i = listOfFiles.length - 1;
-		for (; i >= 0; i--) {
-			File file = listOfFiles[i];
-			if (!file.isFile())
-				continue;
-			long timestamp = Long.parseLong(file.getName().substring(name.length() + 1, file.getName().indexOf(".")));
-			if (timestamp < from)
-				break;
-			if (timestamp >= from && timestamp <= to)
-				resultSet.push(file);
+	public ArchiveCursor messageQuery(long from, long to, ArchiveFilter filter, String continuationToken) {
+		try {
+			writer.flush(this);
+		} catch (Exception e) {
+			LoggingService.logWarning(MODULE_NAME, "unable to flush archive --> " + e.getMessage());
 		}
-		if (i >= 0)
-			resultSet.push(listOfFiles[i]);
-		
-		byte[] header = new byte[HEADER_SIZE];
-		while (!resultSet.isEmpty() && !outOfMemory) {
-			File file = resultSet.pop();
-			String fileName = file.getName();
-			String dataFileName = diskDirectory + fileName.substring(0, fileName.indexOf(".")) + ".iomsg";
-			try (RandomAccessFile indexFile = new RandomAccessFile(new File(diskDirectory + fileName), "r");
-				RandomAccessFile dataFile = new RandomAccessFile(new File(dataFileName), "r")){
-				long dataFileLength = dataFile.length();
-				while (indexFile.getFilePointer() < indexFile.length()) {
-					if (freeMemory() < 32 * Constants.MiB) {
-						outOfMemory = true;
-						break;
-					}
 
-					indexFile.read(header, 0, HEADER_SIZE);
-					if (((header[0] * 256) + header[1]) != 4)
-						throw new Exception("invalid index file format");
-					long dataPos = indexFile.readLong();
-					int dataSize = getDataSize(header);
-					if (dataPos + dataSize > dataFileLength || dataSize > dataFileLength)
-						throw new Exception("invalid data file format");
-					byte[] data = new byte[dataSize];
-					dataFile.read(data, 0, dataSize);
-					Message message = new Message(header, data);
-					if (message.getTimestamp() < from || message.getTimestamp() > to)
-						continue;
-					result.add(message);
-				}
-			} catch (Exception e) {
-				LoggingService.logWarning("Message Archive", e.getMessage());
-			}
-		}
-		
-		return result;
+		List<File> resultSet = ArchiveCatalog.getInstance().getSegmentFiles(name, from, to);
+		return new ArchiveCursor(this, resultSet, from, to, filter, continuationToken);
 	}
 }
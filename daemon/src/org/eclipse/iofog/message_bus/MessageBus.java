@@ -21,8 +21,11 @@ import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -38,8 +41,13 @@ import static org.eclipse.iofog.utils.Constants.ModulesStatus.STOPPED;
 public class MessageBus implements IOFogModule {
 	
 	final static String MODULE_NAME = "Message Bus";
+	public final static String HORNETQ_ENGINE = "hornetq";
+	public final static String RING_BUFFER_ENGINE = "ring";
+	public final static String OVERFLOW_BACKPRESSURE = "backpressure";
+	public final static String OVERFLOW_DROP = "drop";
 
 	private MessageBusServer messageBusServer;
+	private MessageBusEngine engine;
 	private Map<String, Route> routes;
 	private Map<String, MessagePublisher> publishers;
 	private Map<String, MessageReceiver> receivers;
@@ -122,27 +130,60 @@ public class MessageBus implements IOFogModule {
 					Route route = entry.getValue();
 				
 					try {
-						messageBusServer.createProducer(publisher);
+						engine.createProducer(publisher);
 					} catch (Exception e) {
 						LoggingService.logWarning(MODULE_NAME + "(" + publisher + ")",
 								"unable to start publisher module --> " + e.getMessage());
 					}
-					publishers.put(publisher, new MessagePublisher(publisher, route, messageBusServer.getProducer(publisher)));
-
-					receivers.putAll(entry.getValue().getReceivers()
-							.stream()
-							.filter(item -> !receivers.containsKey(item))
-							.collect(Collectors.toMap(item -> item, item -> {
-								try {
-									messageBusServer.createCosumer(item);
-								} catch (Exception e) {
-									LoggingService.logWarning(MODULE_NAME + "(" + item + ")",
-											"unable to start receiver module --> " + e.getMessage());
-								}
-								return new MessageReceiver(item, messageBusServer.getConsumer(item));
-							})));
+					publishers.put(publisher, new MessagePublisher(publisher, route, engine.getProducer(publisher)));
 			});
+		updateReceivers(routes);
+	}
+
+	/**
+	 * creates and removes queues of receivers, so that every receiver 
+	 * has one queue per publisher routing messages to it
+	 * 
+	 * @param routes - routes of publishers
+	 */
+	private void updateReceivers(Map<String, Route> routes) {
+		Map<String, Set<String>> receiverPublishers = new HashMap<>();
+		routes.entrySet().stream()
+			.filter(route -> route.getValue() != null)
+			.filter(route -> route.getValue().getReceivers() != null)
+			.forEach(entry -> entry.getValue().getReceivers()
+					.forEach(receiver -> receiverPublishers.computeIfAbsent(receiver, k -> new HashSet<>()).add(entry.getKey())));
+
+		receivers.entrySet().removeIf(entry -> {
+			if (receiverPublishers.containsKey(entry.getKey()))
+				return false;
+			Set<String> senders = entry.getValue().getPublishers();
+			entry.getValue().close();
+			senders.forEach(publisher -> engine.removeConsumer(publisher, entry.getKey()));
+			return true;
+		});
 
+		receiverPublishers.forEach((name, senders) -> {
+			MessageReceiver receiver = receivers.computeIfAbsent(name, MessageReceiver::new);
+			Set<String> current = receiver.getPublishers();
+			current.stream()
+				.filter(publisher -> !senders.contains(publisher))
+				.forEach(publisher -> {
+					receiver.removeConsumer(publisher);
+					engine.removeConsumer(publisher, name);
+				});
+			senders.stream()
+				.filter(publisher -> !current.contains(publisher))
+				.forEach(publisher -> {
+					try {
+						engine.createConsumer(publisher, name);
+						receiver.addConsumer(publisher, engine.getConsumer(publisher, name));
+					} catch (Exception e) {
+						LoggingService.logWarning(MODULE_NAME + "(" + name + ")",
+								"unable to start receiver module --> " + e.getMessage());
+					}
+				});
+		});
 	}
 	
 	/**
@@ -192,7 +233,7 @@ public class MessageBus implements IOFogModule {
 				}
 
 				publishers.forEach((publisher, value) -> {
-					if (messageBusServer.isProducerClosed(publisher)) {
+					if (engine.isProducerClosed(publisher)) {
 						logWarning("producer module for " + publisher + " stopped. restarting...");
 						value.close();
 						Route route = routes.get(publisher);
@@ -200,8 +241,8 @@ public class MessageBus implements IOFogModule {
 							publishers.remove(publisher);
 						} else {
 							try {
-								messageBusServer.createProducer(publisher);
-								publishers.put(publisher, new MessagePublisher(publisher, route, messageBusServer.getProducer(publisher)));
+								engine.createProducer(publisher);
+								publishers.put(publisher, new MessagePublisher(publisher, route, engine.getProducer(publisher)));
 								logInfo("producer module restarted");
 							} catch (Exception e) {
 								logWarning("unable to restart producer module for " + publisher + " --> " + e.getMessage());
@@ -210,19 +251,19 @@ public class MessageBus implements IOFogModule {
 					}
 				});
 
-				receivers.forEach((receiver, value) -> {
-					if (messageBusServer.isConsumerClosed(receiver)) {
+				receivers.forEach((receiver, value) -> value.getPublishers().forEach(publisher -> {
+					if (engine.isConsumerClosed(publisher, receiver)) {
 						logWarning("consumer module for " + receiver + " stopped. restarting...");
-						value.close();
+						value.removeConsumer(publisher);
 						try {
-							messageBusServer.createCosumer(receiver);
-							receivers.put(receiver, new MessageReceiver(receiver, messageBusServer.getConsumer(receiver)));
+							engine.createConsumer(publisher, receiver);
+							value.addConsumer(publisher, engine.getConsumer(publisher, receiver));
 							logInfo("consumer module restarted");
 						} catch (Exception e) {
 							logWarning("unable to restart consumer module for " + receiver + " --> " + e.getMessage());
 						}
 					}
-				});
+				}));
 			} catch (Exception exp) {
 				logWarning(exp.getMessage());
 			}
@@ -238,7 +279,6 @@ public class MessageBus implements IOFogModule {
 		synchronized (updateLock) {
 			Map<String, Route> newRoutes = microserviceManager.getRoutes();
 			List<String> newPublishers = new ArrayList<>();
-			List<String> newReceivers = new ArrayList<>();
 			
 			newRoutes.entrySet()
 					.stream()
@@ -246,15 +286,12 @@ public class MessageBus implements IOFogModule {
 					.filter(route -> route.getValue().getReceivers() != null)
 					.forEach(entry -> {
 						newPublishers.add(entry.getKey());
-						newReceivers.addAll(entry.getValue().getReceivers()
-								.stream().filter(item -> !newReceivers.contains(item))
-								.collect(Collectors.toList()));
 					});
 
 			publishers.forEach((key, value) -> {
 				if (!newPublishers.contains(key)) {
 					value.close();
-					messageBusServer.removeProducer(key);
+					engine.removeProducer(key);
 				} else {
 					value.updateRoute(newRoutes.get(key));
 				}
@@ -264,31 +301,18 @@ public class MessageBus implements IOFogModule {
 					newPublishers.stream()
 					.filter(publisher -> !publishers.containsKey(publisher))
 					.collect(Collectors.toMap(publisher -> publisher, 
-							publisher -> new MessagePublisher(publisher, newRoutes.get(publisher), messageBusServer.getProducer(publisher)))));
+							publisher -> new MessagePublisher(publisher, newRoutes.get(publisher), engine.getProducer(publisher)))));
 
-			receivers.forEach((key, value) -> {
-				if (!newReceivers.contains(key)) {
-					value.close();
-					messageBusServer.removeConsumer(key);
-				}
-			});
-			receivers.entrySet().removeIf(entry -> !newReceivers.contains(entry.getKey()));
-			receivers.putAll(
-					newReceivers.stream()
-					.filter(receiver -> !receivers.containsKey(receiver))
-					.collect(Collectors.toMap(receiver -> receiver, 
-							receiver -> new MessageReceiver(receiver, messageBusServer.getConsumer(receiver)))));
+			updateReceivers(newRoutes);
 
 			routes = newRoutes;
 
 			List<Microservice> latestMicroservices = microserviceManager.getLatestMicroservices();
-			Map<String, Long> publishedMessagesPerMicroservice = StatusReporter.getMessageBusStatus().getPublishedMessagesPerMicroservice();
-			publishedMessagesPerMicroservice.keySet().removeIf(key -> !microserviceManager.microserviceExists(latestMicroservices, key));
-			latestMicroservices.forEach(e -> {
-				if (!publishedMessagesPerMicroservice.keySet().contains(e.getMicroserviceUuid())) {
-					publishedMessagesPerMicroservice.put(e.getMicroserviceUuid(), 0L);
-				}
-			});
+			MessageBusStatus messageBusStatus = StatusReporter.getMessageBusStatus();
+			messageBusStatus.getPublishedMessagesPerMicroservice().keySet().stream()
+					.filter(key -> !microserviceManager.microserviceExists(latestMicroservices, key))
+					.forEach(messageBusStatus::removePublishedMessagesPerMicroservice);
+			latestMicroservices.forEach(e -> messageBusStatus.addMicroservice(e.getMicroserviceUuid()));
 		}
 	}
 	
@@ -298,7 +322,7 @@ public class MessageBus implements IOFogModule {
 	 * 
 	 */
 	public void instanceConfigUpdated() {
-		messageBusServer.setMemoryLimit();
+		engine.setMemoryLimit();
 	}
 	
 	/**
@@ -324,12 +348,28 @@ public class MessageBus implements IOFogModule {
 		}
 		
 		logInfo("MESSAGE BUS SERVER STARTED");
+		engine = createEngine();
 		init();
 
 		new Thread(calculateSpeed, "MessageBus : CalculateSpeed").start();
 		new Thread(checkMessageServerStatus, "MessageBus : CheckMessageBusServerStatus").start();
+		ArchiveRetention.getInstance().start();
 	}
 	
+	/**
+	 * creates {@link MessageBusEngine} selected in configuration
+	 * HornetQ server keeps running for command-line communications with any engine
+	 * 
+	 * @return {@link MessageBusEngine}
+	 */
+	private MessageBusEngine createEngine() {
+		if (RING_BUFFER_ENGINE.equals(Configuration.getMessageBusEngine())) {
+			logInfo("using ring buffer message bus engine");
+			return new RingBufferEngine();
+		}
+		return new HornetQEngine(messageBusServer);
+	}
+
 	/**
 	 * closes receivers and publishers and stops HornetQ server
 	 * 
@@ -340,6 +380,7 @@ public class MessageBus implements IOFogModule {
 		
 		for (MessagePublisher publisher : publishers.values())
 			publisher.close();
+		engine.close();
 		try {
 			messageBusServer.stopServer();
 		} catch (Exception exp) {
@@ -347,6 +388,15 @@ public class MessageBus implements IOFogModule {
 		}
 	}
 
+	/**
+	 * returns disk space used by archives and by mailbox backlogs of slow receivers
+	 * 
+	 * @return size in bytes
+	 */
+	public static long getDiskUsage() {
+		return ArchiveCatalog.getInstance().getTotalBytes() + ReceiverMailbox.getTotalDiskBytes();
+	}
+
 	/**
 	 * returns {@link MessagePublisher}
 	 * 
@@ -372,9 +422,19 @@ public class MessageBus implements IOFogModule {
 	 * 
 	 * @return
 	 */
-	public synchronized String getNextId() {
+	public String getNextId() {
 		return idGenerator.getNextId();
 	}
+
+	/**
+	 * returns a number of generated message ids at once
+	 * 
+	 * @param count - number of ids
+	 * @return list of ids
+	 */
+	public List<String> getNextIds(int count) {
+		return idGenerator.getNextIds(count);
+	}
 	
 	/**
 	 * returns routes
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.microservice.Microservice;
+
+/**
+ * receives encoded {@link Message} of a publisher for a receiver {@link Microservice}
+ * 
+ */
+public interface MessageBusConsumer {
+
+	/**
+	 * receives one {@link Message} without waiting
+	 * 
+	 * @return encoded {@link Message} or null if there is no message
+	 * @throws Exception
+	 */
+	byte[] receive() throws Exception;
+
+	/**
+	 * sets listener taking messages as they arrive
+	 * 
+	 * @param listener - {@link MessageListener} or null to stop receiving
+	 * @throws Exception
+	 */
+	void setListener(MessageListener listener) throws Exception;
+
+	boolean isClosed();
+
+	void close();
+}
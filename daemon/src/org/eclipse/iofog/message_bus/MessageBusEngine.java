@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.microservice.Microservice;
+
+/**
+ * engine moving encoded {@link Message} from publisher to receiver {@link Microservice}
+ * every receiver has one {@link MessageBusConsumer} per publisher routing to it
+ * 
+ */
+public interface MessageBusEngine extends AutoCloseable {
+
+	/**
+	 * creates {@link MessageBusProducer} for publisher {@link Microservice}
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 * @throws Exception
+	 */
+	void createProducer(String publisher) throws Exception;
+
+	/**
+	 * returns {@link MessageBusProducer} of publisher {@link Microservice}, creating it if needed
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 * @return {@link MessageBusProducer} or null if it can not be created
+	 */
+	MessageBusProducer getProducer(String publisher);
+
+	boolean isProducerClosed(String publisher);
+
+	/**
+	 * removes {@link MessageBusProducer} when publisher {@link Microservice} has been removed
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 */
+	void removeProducer(String publisher);
+
+	/**
+	 * creates {@link MessageBusConsumer} of messages of publisher for receiver {@link Microservice}
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 * @param receiver - ID of receiver {@link Microservice}
+	 * @throws Exception
+	 */
+	void createConsumer(String publisher, String receiver) throws Exception;
+
+	/**
+	 * returns {@link MessageBusConsumer} of messages of publisher for receiver {@link Microservice}, 
+	 * creating it if needed
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 * @param receiver - ID of receiver {@link Microservice}
+	 * @return {@link MessageBusConsumer} or null if it can not be created
+	 */
+	MessageBusConsumer getConsumer(String publisher, String receiver);
+
+	boolean isConsumerClosed(String publisher, String receiver);
+
+	/**
+	 * removes {@link MessageBusConsumer} and messages waiting in it when receiver {@link Microservice}
+	 * does not receive messages of the publisher anymore
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 * @param receiver - ID of receiver {@link Microservice}
+	 */
+	void removeConsumer(String publisher, String receiver);
+
+	/**
+	 * applies memory usage limit from configuration
+	 * 
+	 */
+	void setMemoryLimit();
+
+	/**
+	 * closes all producers and consumers
+	 * 
+	 */
+	void close();
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.List;
+
+import org.eclipse.iofog.microservice.Microservice;
+
+/**
+ * sends encoded {@link Message} of a publisher {@link Microservice} to its receivers
+ * 
+ */
+public interface MessageBusProducer {
+
+	/**
+	 * sends a {@link Message}
+	 * 
+	 * @param message - encoded {@link Message}
+	 * @throws Exception
+	 */
+	void send(byte[] message) throws Exception;
+
+	/**
+	 * sends a batch of {@link Message} at once
+	 * 
+	 * @param messages - encoded {@link Message} list
+	 * @throws Exception
+	 */
+	void send(List<byte[]> messages) throws Exception;
+
+	/**
+	 * returns bytes which may still be sent before receivers run out of memory
+	 * 
+	 * @return credit in bytes, 0 or less when publisher has to slow down
+	 */
+	long getCredit();
+
+	boolean isClosed();
+
+	void close();
+}
@@ -15,7 +15,6 @@ package org.eclipse.iofog.message_bus;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.utils.Constants;
@@ -33,6 +32,8 @@ import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.HornetQClient;
 import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.config.impl.ConfigurationImpl;
+import org.hornetq.core.paging.PagingManager;
+import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.remoting.impl.invm.InVMAcceptorFactory;
 import org.hornetq.core.remoting.impl.invm.InVMConnectorFactory;
 import org.hornetq.core.remoting.impl.netty.NettyAcceptorFactory;
@@ -51,29 +52,19 @@ import org.hornetq.core.settings.impl.AddressSettings;
 public class MessageBusServer {
 	
 	private static final String MODULE_NAME = "Message Bus Server";
+	private static final SimpleString PUBLISHER_ADDRESSES = new SimpleString(Constants.address + ".");
 	private ClientSessionFactory sf;
 	private HornetQServer server;
 	private static ClientSession messageBusSession;
+	private static MessageBusShard[] shards;
 	private ClientConsumer commandlineConsumer;
 	private static ClientProducer commandlineProducer;
-	private Map<String, ClientConsumer> consumers;
-	private Map<String, ClientProducer> producers;
 	private ServerLocator serverLocator;
 	
 	boolean isServerActive() {
 		return server.isActive();
 	}
 	
-	boolean isProducerClosed(String name) {
-		ClientProducer producer = producers.get(name);
-		return producer == null || producer.isClosed();
-	}
-	
-	boolean isConsumerClosed(String name) {
-		ClientConsumer consumer = consumers.get(name); 
-		return consumer == null || consumer.isClosed();
-	}
-	
 	/**
 	 * starts HornetQ server 
 	 * 
@@ -81,10 +72,7 @@ public class MessageBusServer {
 	 */
 	void startServer() throws Exception {
 		LoggingService.logInfo(MODULE_NAME, "starting...");
-		AddressSettings addressSettings = new AddressSettings();
-		long memoryLimit = (long) (Configuration.getMemoryLimit() * 1_000_000);
-		addressSettings.setMaxSizeBytes(memoryLimit);
-		addressSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.DROP);
+		AddressSettings addressSettings = createAddressSettings();
 		String workingDirectory = Configuration.getDiskDirectory();
 
         org.hornetq.core.config.Configuration configuration = new ConfigurationImpl();
@@ -96,7 +84,7 @@ public class MessageBusServer {
 		configuration.setPersistenceEnabled(false);
         configuration.setSecurityEnabled(false);
         configuration.setPagingDirectory(workingDirectory + "messages/paging");
-        configuration.getAddressesSettings().put(Constants.address, addressSettings);
+        configuration.getAddressesSettings().put(Constants.address + ".#", addressSettings);
         
 		Map<String, Object> connectionParams = new HashMap<>();
 		connectionParams.put("port", 55555);
@@ -121,7 +109,7 @@ public class MessageBusServer {
 	
 	/**
 	 * creates IOFog message queues, {@link ClientMessage} producer
-	 * and {@link ClientSession}
+	 * and {@link ClientSession} shards
 	 * 
 	 * @throws Exception
 	 */
@@ -133,7 +121,6 @@ public class MessageBusServer {
 		queueQuery = messageBusSession.queueQuery(new SimpleString(Constants.commandlineAddress));
 		if (queueQuery.isExists())
 			messageBusSession.deleteQueue(Constants.commandlineAddress);
-		messageBusSession.createQueue(Constants.address, Constants.address, false);
 		messageBusSession.createQueue(Constants.commandlineAddress, Constants.commandlineAddress, false);
 
 		commandlineProducer = messageBusSession.createProducer(Constants.commandlineAddress);
@@ -141,122 +128,50 @@ public class MessageBusServer {
 		commandlineConsumer = messageBusSession.createConsumer(Constants.commandlineAddress, String.format("receiver = '%s'", "iofog.commandline.command"));
 		commandlineConsumer.setMessageHandler(new CommandLineHandler());
 		messageBusSession.start();
-	}
-	
-	/**
-	 * creates a new {@link ClientConsumer} for receiver {@link Microservice}
-	 * 
-	 * @param name - ID of {@link Microservice}
-	 * @throws Exception
-	 */
-	void createCosumer(String name) throws Exception {
-		if (consumers == null)
-			consumers = new ConcurrentHashMap<>();
 
-		ClientConsumer consumer = messageBusSession.createConsumer(Constants.address, String.format("receiver = '%s'", name));
-		consumers.put(name, consumer);
+		shards = new MessageBusShard[Math.max(1, Runtime.getRuntime().availableProcessors())];
+		for (int i = 0; i < shards.length; i++)
+			shards[i] = new MessageBusShard(sf);
 	}
 	
-	/**
-	 * returns {@link ClientConsumer} of a receiver {@link Microservice}
-	 * 
-	 * @param receiver - ID of {@link Microservice}
-	 * @return {@link ClientConsumer}
-	 */
-	ClientConsumer getConsumer(String receiver) {
-		if (consumers == null || !consumers.containsKey(receiver))
-			try {
-				createCosumer(receiver);
-			} catch (Exception e) {
-				return null;
-			}
-		return consumers.get(receiver);
-	}
-	
-	/**
-	 * removes {@link ClientConsumer} when a receiver {@link Microservice} has been removed
-	 * 
-	 * @param name - ID of {@link Microservice}
-	 */
-	void removeConsumer(String name) {
-		if (consumers == null)
-			return;
-		consumers.remove(name);
-	}
-	
-	/**
-	 * creates a new {@link ClientProducer} for publisher {@link Microservice}
-	 * 
-	 * @param name - ID of {@link Microservice}
-	 * @throws Exception
-	 */
-	void createProducer(String name) throws Exception {
-		if (producers == null)
-			producers = new ConcurrentHashMap<>();
-		ClientProducer producer = messageBusSession.createProducer(Constants.address);
-		producers.put(name, producer);
+	static ClientSession getSession() {
+		return messageBusSession;
 	}
 	
-	/**
-	 * returns {@link ClientProducer} of a publisher {@link Microservice}
-	 * 
-	 * @param publisher - ID of {@link Microservice}
-	 * @return {@link ClientProducer}
-	 */
-	ClientProducer getProducer(String publisher) {
-		if (producers == null || !producers.containsKey(publisher))
-			try {
-				createProducer(publisher);
-			} catch (Exception e) {
-				return null;
-			}
-		return producers.get(publisher);
+	static ClientProducer getCommandlineProducer() {
+		return commandlineProducer;
 	}
-	
+
 	/**
-	 * removes {@link ClientConsumer} when a receiver {@link Microservice} has been removed
+	 * returns {@link MessageBusShard} of publisher or receiver {@link Microservice}
+	 * a {@link Microservice} always maps to the same shard, which keeps its messages in order
 	 * 
 	 * @param name - ID of {@link Microservice}
+	 * @return {@link MessageBusShard}
 	 */
-	void removeProducer(String name) {
-		if (producers == null)
-			return;
-		producers.remove(name);
-	}
-	
-	static ClientSession getSession() {
-		return messageBusSession;
-	}
-	
-	static ClientProducer getCommandlineProducer() {
-		return commandlineProducer;
+	static MessageBusShard getShard(String name) {
+		if (shards == null)
+			return null;
+		return shards[Math.floorMod(name.hashCode(), shards.length)];
 	}
 
 	/**
-	 * stops all consumers, producers and HornetQ server
+	 * stops sessions and HornetQ server
 	 * 
 	 * @throws Exception
 	 */
 	void stopServer() throws Exception {
 		LoggingService.logInfo(MODULE_NAME, "stopping...");
-		if (consumers != null)
-			consumers.forEach((key, value) -> {
-				try {
-					value.close();
-				} catch (HornetQException e) {
-					LoggingService.logInfo(MODULE_NAME, e.getMessage());
-				}
-			});
 		if (commandlineConsumer != null)
 			commandlineConsumer.close();
-		if (producers != null)
-			producers.forEach((key, value) -> {
+		if (shards != null)
+			for (MessageBusShard shard : shards) {
 				try {
-					value.close();
+					shard.close();
 				} catch (HornetQException e) {
 					LoggingService.logInfo(MODULE_NAME, e.getMessage());
 				}
-			});
+			}
 		if (serverLocator != null)
 			serverLocator.close();
 		if (sf != null)
@@ -266,16 +181,50 @@ public class MessageBusServer {
 		LoggingService.logInfo(MODULE_NAME, "stopped");
 	}
 
+	/**
+	 * returns bytes which may still be sent to an address before the memory limit is reached
+	 * the memory limit is a single budget of the agent, so bytes waiting in all publisher addresses count against it
+	 * 
+	 * @param address - address
+	 * @return credit in bytes
+	 */
+	long getAddressCredit(String address) {
+		try {
+			PagingManager pagingManager = server.getPagingManager();
+			PagingStore store = pagingManager.getPageStore(new SimpleString(address));
+			if (store.getMaxSize() < 0)
+				return Long.MAX_VALUE;
+			long usedBytes = 0;
+			for (SimpleString storeName : pagingManager.getStoreNames())
+				if (storeName.startsWith(PUBLISHER_ADDRESSES))
+					usedBytes += pagingManager.getPageStore(storeName).getAddressSize();
+			return store.getMaxSize() - usedBytes;
+		} catch (Exception e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
 	/**
 	 * sets memory usage limit of HornetQ server
 	 * 
 	 */
 	void setMemoryLimit() {
+		server.getAddressSettingsRepository().addMatch(Constants.address + ".#", createAddressSettings());
+	}
+
+	/**
+	 * creates settings of publisher addresses with memory usage limit
+	 * publishers are admitted against free space left of the limit in all publisher addresses together
+	 * before sending, which slows them down or counts dropped messages per route,
+	 * so the DROP policy of a single address only applies to messages racing for the last free bytes
+	 * 
+	 * @return {@link AddressSettings}
+	 */
+	private static AddressSettings createAddressSettings() {
 		AddressSettings addressSettings = new AddressSettings();
 		long memoryLimit = (long) (Configuration.getMemoryLimit() * 1_000_000);
 		addressSettings.setMaxSizeBytes(memoryLimit);
 		addressSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.DROP);
-
-		server.getAddressSettingsRepository().addMatch(Constants.address, addressSettings);
+		return addressSettings;
 	}
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.microservice.Microservice;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+
+/**
+ * shard of HornetQ sessions
+ * owns producers and consumers of {@link Microservice} mapped to it.
+ * producers send on a transacted session, so a batch is committed at once,
+ * consumers receive on an auto-commit session
+ * 
+ */
+class MessageBusShard {
+	private final ClientSession session;
+	private final ClientSession producerSession;
+
+	MessageBusShard(ClientSessionFactory sf) throws HornetQException {
+		session = sf.createSession(true, true, 0);
+		session.start();
+		producerSession = sf.createSession(false, false, 0);
+	}
+
+	/**
+	 * returns {@link ClientSession} of consumers of this shard
+	 * callers synchronize on it, as a session must not be used by several threads at once
+	 * 
+	 * @return {@link ClientSession}
+	 */
+	ClientSession getSession() {
+		return session;
+	}
+
+	/**
+	 * returns transacted {@link ClientSession} of producers of this shard
+	 * callers synchronize on it and commit what they have sent before releasing it,
+	 * so single messages and batches of a publisher stay in order
+	 * 
+	 * @return {@link ClientSession}
+	 */
+	ClientSession getProducerSession() {
+		return producerSession;
+	}
+
+	void close() throws HornetQException {
+		try {
+			producerSession.close();
+		} finally {
+			session.close();
+		}
+	}
+}
@@ -14,6 +14,8 @@ package org.eclipse.iofog.message_bus;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -26,38 +28,112 @@ import javax.json.JsonObjectBuilder;
  *
  */
 public class MessageBusStatus {
-	private long processedMessages;
-	private final Map<String, Long> publishedMessagesPerMicroservice;
-	private float averageSpeed;
+	private final Traffic total;
+	private final Map<String, Traffic> trafficPerMicroservice;
+	private final Map<String, Map<String, AtomicLong>> droppedMessagesPerRoute;
+	private volatile float averageSpeed;
 	
 	public MessageBusStatus() {
-		publishedMessagesPerMicroservice = new HashMap<>();
-		processedMessages = 0;
+		total = new Traffic();
+		trafficPerMicroservice = new ConcurrentHashMap<>();
+		droppedMessagesPerRoute = new ConcurrentHashMap<>();
 		averageSpeed = 0;
 	}
 	
 	public long getProcessedMessages() {
-		return processedMessages;
+		return total.publishedMessages.getCount();
 	}
 
 	public Long getPublishedMessagesPerMicroservice(String microservice) {
-		return publishedMessagesPerMicroservice.get(microservice);
+		Traffic traffic = trafficPerMicroservice.get(microservice);
+		return traffic == null ? null : traffic.publishedMessages.getCount();
 	}
 
+	/**
+	 * returns snapshot of published messages count per microservice
+	 * 
+	 * @return map of microservice ID to published messages count
+	 */
 	public Map<String, Long> getPublishedMessagesPerMicroservice() {
-		return publishedMessagesPerMicroservice;
+		Map<String, Long> result = new HashMap<>();
+		trafficPerMicroservice.forEach((key, value) -> result.put(key, value.publishedMessages.getCount()));
+		return result;
 	}
 
 	public MessageBusStatus increasePublishedMessagesPerMicroservice(String microservice) {
-		this.processedMessages++;
+		return increasePublishedMessagesPerMicroservice(microservice, 0);
+	}
+
+	public MessageBusStatus increasePublishedMessagesPerMicroservice(String microservice, long bytes) {
+		total.published(bytes);
+		getTraffic(microservice).published(bytes);
+		return this;
+	}
+
+	public MessageBusStatus increaseDeliveredMessagesPerMicroservice(String microservice, long bytes) {
+		total.delivered(bytes);
+		getTraffic(microservice).delivered(bytes);
+		return this;
+	}
+
+	/**
+	 * counts messages of publisher which have not been delivered to a receiver
+	 * because the receiver ran out of memory
+	 * 
+	 * @param publisher - ID of publisher microservice
+	 * @param receiver - ID of receiver microservice
+	 * @param count - number of messages
+	 * @return this
+	 */
+	public MessageBusStatus increaseDroppedMessagesPerRoute(String publisher, String receiver, long count) {
+		total.droppedMessages.mark(count);
+		getTraffic(publisher).droppedMessages.mark(count);
+		droppedMessagesPerRoute.computeIfAbsent(publisher, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(receiver, key -> new AtomicLong())
+				.addAndGet(count);
+		return this;
+	}
+
+	/**
+	 * counts a message of publisher which has been rejected to slow the publisher down
+	 * 
+	 * @param microservice - ID of publisher microservice
+	 * @return this
+	 */
+	public MessageBusStatus increaseThrottledMessagesPerMicroservice(String microservice) {
+		total.throttledMessages.mark(1);
+		getTraffic(microservice).throttledMessages.mark(1);
+		return this;
+	}
 
-		Long n = this.publishedMessagesPerMicroservice.get(microservice);
-		if (n == null)
-			n = 0L;
-		this.publishedMessagesPerMicroservice.put(microservice, n + 1);
+	/**
+	 * counts messages which have not been delivered to a receiver, because they have been waiting longer than TTL
+	 * 
+	 * @param microservice - ID of receiver microservice
+	 * @param count - number of messages
+	 * @return this
+	 */
+	public MessageBusStatus increaseExpiredMessagesPerMicroservice(String microservice, long count) {
+		total.expiredMessages.mark(count);
+		getTraffic(microservice).expiredMessages.mark(count);
 		return this;
 	}
 
+	/**
+	 * sets size of mailbox of a receiver
+	 * 
+	 * @param microservice - ID of receiver microservice
+	 * @param memoryBytes - bytes of messages waiting in memory
+	 * @param backlogMessages - number of messages waiting on the disk
+	 * @param backlogBytes - bytes of messages waiting on the disk
+	 */
+	public void setMailbox(String microservice, long memoryBytes, long backlogMessages, long backlogBytes) {
+		Traffic traffic = getTraffic(microservice);
+		traffic.mailboxMemoryBytes = memoryBytes;
+		traffic.mailboxBacklogMessages = backlogMessages;
+		traffic.mailboxBacklogBytes = backlogBytes;
+	}
+
 	public float getAverageSpeed() {
 		return averageSpeed;
 	}
@@ -67,21 +143,145 @@ public class MessageBusStatus {
 		return this;
 	}
 	
+	/**
+	 * starts tracking a microservice with zero counters, if it is not tracked yet
+	 * 
+	 * @param microservice - ID of microservice
+	 */
+	public void addMicroservice(String microservice) {
+		getTraffic(microservice);
+	}
+
 	public void removePublishedMessagesPerMicroservice(String microservice) {
-		if (publishedMessagesPerMicroservice.containsKey(microservice))
-			publishedMessagesPerMicroservice.remove(microservice);
+		trafficPerMicroservice.remove(microservice);
+		droppedMessagesPerRoute.remove(microservice);
+		droppedMessagesPerRoute.values().forEach(receivers -> receivers.remove(microservice));
 	}
 	
 	public String getJsonPublishedMessagesPerMicroservice() {
 		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-		publishedMessagesPerMicroservice.forEach((key, value) -> {
+		trafficPerMicroservice.forEach((key, value) -> {
 			JsonObjectBuilder objectBuilder = Json.createObjectBuilder()
 					.add("id", key)
-					.add("messagecount", value);
+					.add("messagecount", value.publishedMessages.getCount());
 			arrayBuilder.add(objectBuilder);
 
 		});
 		return arrayBuilder.build().toString();
 	}
 
+	/**
+	 * returns message and byte rates, total and per microservice,
+	 * mailbox size per microservice and dropped messages per route
+	 * 
+	 * @return json string
+	 */
+	public String getJsonMessageRates() {
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		trafficPerMicroservice.forEach((key, value) -> arrayBuilder.add(value.toJson()
+				.add("mailbox", value.mailboxToJson())
+				.add("id", key)));
+		JsonArrayBuilder routesBuilder = Json.createArrayBuilder();
+		droppedMessagesPerRoute.forEach((publisher, receivers) -> receivers.forEach((receiver, dropped) ->
+				routesBuilder.add(Json.createObjectBuilder()
+						.add("publisher", publisher)
+						.add("receiver", receiver)
+						.add("dropped", dropped.get()))));
+		return total.toJson()
+				.add("microservices", arrayBuilder)
+				.add("routes", routesBuilder)
+				.build().toString();
+	}
+
+	public RateMeter getPublishedMessages() {
+		return total.publishedMessages;
+	}
+
+	public RateMeter getPublishedBytes() {
+		return total.publishedBytes;
+	}
+
+	public RateMeter getDeliveredMessages() {
+		return total.deliveredMessages;
+	}
+
+	public RateMeter getDeliveredBytes() {
+		return total.deliveredBytes;
+	}
+
+	public RateMeter getDroppedMessages() {
+		return total.droppedMessages;
+	}
+
+	public RateMeter getThrottledMessages() {
+		return total.throttledMessages;
+	}
+
+	public RateMeter getExpiredMessages() {
+		return total.expiredMessages;
+	}
+
+	private Traffic getTraffic(String microservice) {
+		Traffic traffic = trafficPerMicroservice.get(microservice);
+		if (traffic == null)
+			traffic = trafficPerMicroservice.computeIfAbsent(microservice, key -> new Traffic());
+		return traffic;
+	}
+
+	/**
+	 * published and delivered messages and bytes, dropped, throttled and expired messages,
+	 * and size of receiver mailbox
+	 * 
+	 */
+	private static class Traffic {
+		private final RateMeter publishedMessages = new RateMeter();
+		private final RateMeter publishedBytes = new RateMeter();
+		private final RateMeter deliveredMessages = new RateMeter();
+		private final RateMeter deliveredBytes = new RateMeter();
+		private final RateMeter droppedMessages = new RateMeter();
+		private final RateMeter throttledMessages = new RateMeter();
+		private final RateMeter expiredMessages = new RateMeter();
+		private volatile long mailboxMemoryBytes = 0;
+		private volatile long mailboxBacklogMessages = 0;
+		private volatile long mailboxBacklogBytes = 0;
+
+		void published(long bytes) {
+			publishedMessages.mark(1);
+			publishedBytes.mark(bytes);
+		}
+
+		void delivered(long bytes) {
+			deliveredMessages.mark(1);
+			deliveredBytes.mark(bytes);
+		}
+
+		JsonObjectBuilder toJson() {
+			return Json.createObjectBuilder()
+					.add("published", toJson(publishedMessages, publishedBytes))
+					.add("delivered", toJson(deliveredMessages, deliveredBytes))
+					.add("dropped", droppedMessages.getCount())
+					.add("throttled", throttledMessages.getCount())
+					.add("expired", expiredMessages.getCount());
+		}
+
+		JsonObjectBuilder mailboxToJson() {
+			return Json.createObjectBuilder()
+					.add("memoryBytes", mailboxMemoryBytes)
+					.add("backlogMessages", mailboxBacklogMessages)
+					.add("backlogBytes", mailboxBacklogBytes);
+		}
+
+		private static JsonObjectBuilder toJson(RateMeter messages, RateMeter bytes) {
+			return Json.createObjectBuilder()
+					.add("messages", messages.getCount())
+					.add("bytes", bytes.getCount())
+					.add("messagesPerSecond1s", messages.getRate1s())
+					.add("messagesPerSecond10s", messages.getRate10s())
+					.add("messagesPerSecond60s", messages.getRate60s())
+					.add("bytesPerSecond1s", bytes.getRate1s())
+					.add("bytesPerSecond10s", bytes.getRate10s())
+					.add("bytesPerSecond60s", bytes.getRate60s());
+		}
+	}
+
 }
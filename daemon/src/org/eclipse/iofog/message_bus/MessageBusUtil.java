@@ -13,14 +13,22 @@
 package org.eclipse.iofog.message_bus;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.microservice.Route;
 import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 public class MessageBusUtil {
+	private static final long MIN_RETRY_AFTER_MILLIS = 100;
+	private static final long MAX_RETRY_AFTER_MILLIS = 5000;
 
 	private final MessageBus messageBus;
 	
@@ -36,7 +44,6 @@ public class MessageBusUtil {
 	 */
 	public void publishMessage(Message message) {
 		long timestamp = System.currentTimeMillis();
-		StatusReporter.setMessageBusStatus().increasePublishedMessagesPerMicroservice(message.getPublisher());
 		message.setId(messageBus.getNextId());
 		message.setTimestamp(timestamp);
 		
@@ -50,6 +57,90 @@ public class MessageBusUtil {
 		}
 	}
 	
+	/**
+	 * publishes a batch of {@link Message}
+	 * ids are allocated in bulk and all messages share the batch timestamp.
+	 * when backpressure is enabled, messages of a publisher whose receivers have no memory left
+	 * are not published and returned, so the caller can retry them after {@link #getRetryAfter(String, long)}
+	 * 
+	 * @param messages - list of {@link Message} to be published
+	 * @return list of {@link Message} which have not been published, in order
+	 */
+	public List<Message> publishBatch(List<Message> messages) {
+		if (messages.isEmpty())
+			return Collections.emptyList();
+		long timestamp = System.currentTimeMillis();
+		List<String> ids = messageBus.getNextIds(messages.size());
+		Map<String, List<Message>> byPublisher = new LinkedHashMap<>();
+		for (int i = 0; i < messages.size(); i++) {
+			Message message = messages.get(i);
+			message.setId(ids.get(i));
+			message.setTimestamp(timestamp);
+			byPublisher.computeIfAbsent(message.getPublisher(), k -> new ArrayList<>()).add(message);
+		}
+
+		Set<Message> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+		byPublisher.forEach((name, batch) -> {
+			MessagePublisher publisher = messageBus.getPublisher(name);
+			if (publisher != null) {
+				try {
+					int published = publisher.publishBatch(batch);
+					for (Message message : batch.subList(published, batch.size())) {
+						rejected.add(message);
+						StatusReporter.setMessageBusStatus().increaseThrottledMessagesPerMicroservice(name);
+					}
+				} catch (Exception e) {
+					LoggingService.logWarning("Message Publisher (" + publisher.getName() + ")", "unable to send message --> " + e.getMessage());
+				}
+			}
+		});
+		if (rejected.isEmpty())
+			return Collections.emptyList();
+		List<Message> result = new ArrayList<>(rejected.size());
+		for (Message message : messages)
+			if (rejected.contains(message))
+				result.add(message);
+		return result;
+	}
+	
+	/**
+	 * tells publisher of {@link Message} to slow down when backpressure is enabled
+	 * and its receivers have no memory left for the message
+	 * 
+	 * @param message - {@link Message} to be published
+	 * @return 0 if message may be published, otherwise milliseconds to wait before retrying
+	 */
+	public long getRetryAfter(Message message) {
+		// id and timestamp are set when the message is published
+		long size = MessageView.encodedLength(message) + MessageIdGenerator.ID_LENGTH + Long.BYTES;
+		return getRetryAfter(message.getPublisher(), size);
+	}
+
+	/**
+	 * tells publisher to slow down when backpressure is enabled and its receivers have no memory left for size bytes
+	 * the wait is estimated from the missing memory and the recent delivery rate
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 * @param size - encoded size of the message or batch to be published
+	 * @return 0 if publisher may publish, otherwise milliseconds to wait before retrying
+	 */
+	public long getRetryAfter(String publisher, long size) {
+		if (!MessageBus.OVERFLOW_BACKPRESSURE.equals(Configuration.getMessageOverflow()))
+			return 0;
+		MessagePublisher messagePublisher = messageBus.getPublisher(publisher);
+		if (messagePublisher == null)
+			return 0;
+		long credit = messagePublisher.getCredit();
+		if (credit >= size)
+			return 0;
+		StatusReporter.setMessageBusStatus().increaseThrottledMessagesPerMicroservice(publisher);
+		double deliveredBytesPerSecond = StatusReporter.getMessageBusStatus().getDeliveredBytes().getRate10s();
+		if (deliveredBytesPerSecond <= 0)
+			return MAX_RETRY_AFTER_MILLIS;
+		long retryAfter = (long) ((size - credit) * 1000 / deliveredBytesPerSecond);
+		return Math.max(MIN_RETRY_AFTER_MILLIS, Math.min(MAX_RETRY_AFTER_MILLIS, retryAfter));
+	}
+
 	/**
 	 * gets list of {@link Message} for receiver
 	 * 
@@ -57,28 +148,78 @@ public class MessageBusUtil {
 	 * @return list of {@link Message}
 	 */
 	public List<Message> getMessages(String receiver) {
+		return getMessages(receiver, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * gets list of at most max {@link Message} for receiver
+	 * 
+	 * @param receiver - ID of {@link Microservice}
+	 * @param max - maximum number of messages
+	 * @return list of {@link Message}
+	 */
+	public List<Message> getMessages(String receiver, int max) {
 		List<Message> messages = new ArrayList<>();
 		MessageReceiver rec = messageBus.getReceiver(receiver); 
 		if (rec != null) {
 			try {
-				messages = rec.getMessages();
+				messages = rec.getMessages(max);
 			} catch (Exception e) {
 				LoggingService.logWarning("Message Receiver (" + receiver + ")", "unable to receive messages --> " + e.getMessage());
 			}
 		}
 		return messages;
 	}
+
+	/**
+	 * forwards messages waiting for real-time receiver, as its websocket has made room for them
+	 * 
+	 * @param receiver - ID of {@link Microservice}
+	 */
+	public void forwardMessages(String receiver) {
+		MessageReceiver rec = messageBus.getReceiver(receiver);
+		if (rec != null)
+			rec.forwardMessages();
+	}
+
+	/**
+	 * registers waiter to be run once when a {@link Message} arrives for receiver
+	 * waiter should only schedule work, it is run on the thread delivering the message
+	 * 
+	 * @param receiver - ID of {@link Microservice}
+	 * @param waiter - {@link Runnable}
+	 * @return false if messages are waiting already or receiver can not be waited for
+	 */
+	public boolean awaitMessages(String receiver, Runnable waiter) {
+		MessageReceiver rec = messageBus.getReceiver(receiver);
+		return rec != null && rec.awaitMessages(waiter);
+	}
+
+	/**
+	 * removes waiter registered for receiver
+	 * 
+	 * @param receiver - ID of {@link Microservice}
+	 * @param waiter - {@link Runnable}
+	 */
+	public void removeWaiter(String receiver, Runnable waiter) {
+		MessageReceiver rec = messageBus.getReceiver(receiver);
+		if (rec != null)
+			rec.removeWaiter(waiter);
+	}
 	
 	/**
-	 * gets list of {@link Message} within a time frame
+	 * gets {@link Message} within a time frame
 	 * 
 	 * @param publisher - ID of {@link Microservice}
 	 * @param receiver - ID of {@link Microservice}
 	 * @param from - beginning of time frame
 	 * @param to - end of time frame
-	 * @return list of {@link Message}
+	 * @param filter - {@link ArchiveFilter} or null
+	 * @param continuationToken - token returned by previous query to continue it, or null
+	 * @return {@link ArchiveCursor}
 	 */
-	public List<Message> messageQuery(String publisher, String receiver, long from, long to) {
+	public ArchiveCursor messageQuery(String publisher, String receiver, long from, long to, ArchiveFilter filter, 
+			String continuationToken) {
 		Route route = messageBus.getRoutes().get(publisher); 
 		if (to < from || route == null || !route.getReceivers().contains(receiver))
 			return null;
@@ -86,7 +227,7 @@ public class MessageBusUtil {
 		MessagePublisher messagePublisher = messageBus.getPublisher(publisher);
 		if (messagePublisher == null)
 			return null;
-		return messagePublisher.messageQuery(from, to);
+		return messagePublisher.messageQuery(from, to, filter, continuationToken);
 	}
 	
 }
@@ -12,92 +12,121 @@
  *******************************************************************************/
 package org.eclipse.iofog.message_bus;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * class to generate unique id for {@link Message}
+ * id consists of timestamp and sequence followed by node id, all in base 58.
+ * ids never block, are unique across restarts and ordered by generation time.
+ * digits of base 58 are in ASCII order, so ids of a node sort lexicographically by generation time
  * 
  * @author saeid
  *
  */
 public class MessageIdGenerator {
-	private static final char[] ALPHABETS_ARRAY = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz123456789".toCharArray();
+	private static final char[] ALPHABETS_ARRAY = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+	private static final int SEQUENCE_BITS = 20;
+	private static final int TIME_LENGTH = 11;
+	private static final int NODE_LENGTH = 6;
+	public static final int ID_LENGTH = TIME_LENGTH + NODE_LENGTH;
 
 	/**
-	 * converts base 10 to base 58
+	 * writes number in base 58 with fixed width
 	 *
 	 * @param number - number to be converted
-	 * @return base 58 presentation of number
+	 * @param result - target array
+	 * @param offset - position of first character
+	 * @param length - number of characters
 	 */
-	private String toBase58(long number) {
-		StringBuilder result = new StringBuilder();
-		while (number >= 58) {
-			result.append(ALPHABETS_ARRAY[(int) (number % 58)]);
-			number /= 58;
+	private static void toBase58(long number, char[] result, int offset, int length) {
+		for (int i = offset + length - 1; i >= offset; i--) {
+			result[i] = ALPHABETS_ARRAY[(int) Long.remainderUnsigned(number, 58)];
+			number = Long.divideUnsigned(number, 58);
 		}
-		result.append(ALPHABETS_ARRAY[(int) number]);
-		return result.reverse().toString();
 	}
 
-
-	private final int MAX_SEQUENCE = 100000000;
-	private volatile long lastTime = 0;
-	private volatile int sequence = MAX_SEQUENCE;
 	/**
-	 * generates unique id based on time and sequence
-	 *
-	 * @param time - timestamp in milliseconds
+	 * converts fixed width base 58 to base 10
+	 * 
+	 * @param value - base 58 presentation of number
+	 * @param offset - position of first character
+	 * @param length - number of characters
+	 * @return number
 	 */
-	public synchronized String generate(long time) {
-		if (lastTime == time) {
-			sequence--;
-		} else {
-			lastTime = time;
-			sequence = MAX_SEQUENCE;
+	private static long fromBase58(String value, int offset, int length) {
+		long result = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int digit = indexOf(value.charAt(i));
+			if (digit < 0)
+				throw new IllegalArgumentException("invalid message id");
+			result = result * 58 + digit;
 		}
-		return toBase58(time) + toBase58(sequence);
+		return result;
 	}
 
+	private static int indexOf(char c) {
+		if (c >= '1' && c <= '9')
+			return c - '1';
+		if (c >= 'A' && c <= 'Z' && c != 'I' && c != 'O')
+			return c < 'I' ? 9 + c - 'A' : c < 'O' ? 9 + c - 'A' - 1 : 9 + c - 'A' - 2;
+		if (c >= 'a' && c <= 'z' && c != 'l')
+			return c < 'l' ? 33 + c - 'a' : 33 + c - 'a' - 1;
+		return -1;
+	}
 
-	// uuid
-	private static final int PRE_GENERATED_IDS_COUNT = 100_000;
-	private boolean isRefilling = false;
-	private final Queue<String> generatedIds = new LinkedList<>();
 	/**
-	 * generates unique id based on UUID
-	 * 
+	 * timestamp of last id in the high bits and sequence within that millisecond in the low bits
+	 * when sequence overflows it carries into the timestamp, so generation never waits 
 	 */
-	private final Runnable refill = () -> {
-		if (isRefilling)
-			return;
-		isRefilling = true;
-		while (generatedIds.size() < PRE_GENERATED_IDS_COUNT)
-			synchronized (generatedIds) {
-				generatedIds.offer(UUID.randomUUID().toString().replaceAll("-", ""));
-			}
-		isRefilling = false;
-	};
-	
+	private final AtomicLong lastId = new AtomicLong();
+	private final long nodeId = new SecureRandom().nextInt() & 0xFFFFFFFFL;
+
 	/**
-	 * returns next generated id from list
+	 * returns next generated id
 	 * 
 	 * @return id
 	 */
 	public String getNextId() {
-		while (generatedIds.size() == 0);
-		synchronized (generatedIds) {
-			return generatedIds.poll();
-		}
+		long now = System.currentTimeMillis() << SEQUENCE_BITS;
+		long last, next;
+		do {
+			last = lastId.get();
+			next = now > last ? now : last + 1;
+		} while (!lastId.compareAndSet(last, next));
+
+		char[] result = new char[ID_LENGTH];
+		toBase58(next, result, 0, TIME_LENGTH);
+		toBase58(nodeId, result, TIME_LENGTH, NODE_LENGTH);
+		return new String(result);
 	}
 	
-	public MessageIdGenerator() {
-		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-		scheduler.scheduleAtFixedRate(refill, 0, 5, TimeUnit.SECONDS);
+	/**
+	 * returns a number of generated ids
+	 * 
+	 * @param count - number of ids
+	 * @return list of ids
+	 */
+	public List<String> getNextIds(int count) {
+		List<String> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			result.add(getNextId());
+		return result;
+	}
+
+	/**
+	 * returns timestamp when the id has been generated
+	 * 
+	 * @param id - id generated by {@link MessageIdGenerator}
+	 * @return timestamp in milliseconds
+	 * @throws IllegalArgumentException if id was not generated by {@link MessageIdGenerator}
+	 */
+	public static long getTimestamp(String id) {
+		if (id == null || id.length() != ID_LENGTH)
+			throw new IllegalArgumentException("invalid message id");
+		return fromBase58(id, 0, TIME_LENGTH) >>> SEQUENCE_BITS;
 	}
 	
 //			 			 1         2         3         4         5         6         7         8         9         0         1         2         3         4         5         6         7         
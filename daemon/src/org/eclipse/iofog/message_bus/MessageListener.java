@@ -13,10 +13,7 @@
 package org.eclipse.iofog.message_bus;
 
 import org.eclipse.iofog.local_api.MessageCallback;
-import org.hornetq.api.core.client.ClientMessage;
-import org.hornetq.api.core.client.MessageHandler;
-
-import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
+import org.eclipse.iofog.status_reporter.StatusReporter;
 
 /**
  * listener for real-time receiving
@@ -24,24 +21,39 @@ import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
  * @author saeid
  *
  */
-public class MessageListener implements MessageHandler{
-	private static final String MODULE_NAME = "MessageListener";
+public class MessageListener {
 
 	private final MessageCallback callback;
 	
 	public MessageListener(MessageCallback callback) {
 		this.callback = callback;
 	}
+
+	/**
+	 * for listeners keeping messages instead of forwarding them to a receiver
+	 * 
+	 */
+	protected MessageListener() {
+		this.callback = null;
+	}
 	
-	@Override
-	public void onMessage(ClientMessage msg) {
-		try {
-			msg.acknowledge();
-		} catch (Exception exp) {
-			logWarning(MODULE_NAME, exp.getMessage());}
-		
-		Message message = new Message(msg.getBytesProperty("message"));
+	/**
+	 * forwards received {@link Message} to receiver
+	 * 
+	 * @param message - encoded {@link Message}
+	 */
+	public void onMessage(byte[] message) {
+		StatusReporter.setMessageBusStatus().increaseDeliveredMessagesPerMicroservice(callback.getName(), message.length);
 		callback.sendRealtimeMessage(message);
 	}
 
+	/**
+	 * returns number of messages receiver can take now without dropping any
+	 * 
+	 * @return number of messages
+	 */
+	public int getRoom() {
+		return callback.getRoom();
+	}
+
 }
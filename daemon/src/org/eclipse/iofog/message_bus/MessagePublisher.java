@@ -12,14 +12,14 @@
  *******************************************************************************/
 package org.eclipse.iofog.message_bus;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.microservice.Route;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
-import org.hornetq.api.core.client.ClientMessage;
-import org.hornetq.api.core.client.ClientProducer;
-import org.hornetq.api.core.client.ClientSession;
 
 import static org.eclipse.iofog.message_bus.MessageBus.MODULE_NAME;
 import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
@@ -33,16 +33,14 @@ import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
 public class MessagePublisher implements AutoCloseable{
 	private final MessageArchive archive;
 	private final String name;
-	private ClientProducer producer;
-	private ClientSession session;
+	private MessageBusProducer producer;
 	private Route route;
 	
-	public MessagePublisher(String name, Route route, ClientProducer producer) {
+	public MessagePublisher(String name, Route route, MessageBusProducer producer) {
 		this.archive = new MessageArchive(name);
 		this.route = route;
 		this.name = name;
 		this.producer = producer;
-		this.session = MessageBusServer.getSession();
 	}
 	
 	public String getName() {
@@ -56,19 +54,89 @@ public class MessagePublisher implements AutoCloseable{
 	 * @throws Exception
 	 */
 	synchronized void publish(Message message) throws Exception {
-		byte[] bytes = message.getBytes();
+		byte[] bytes = message.rawBytes();
+		StatusReporter.setMessageBusStatus().increasePublishedMessagesPerMicroservice(name, bytes.length);
 
 		try {
 			archive.save(bytes, message.getTimestamp());
 		} catch (Exception e) {
 			LoggingService.logWarning("Message Publisher (" + this.name + ")", "unable to archive massage --> " + e.getMessage());
 		}
-		for (String receiver : route.getReceivers()) {
-			ClientMessage msg = session.createMessage(false);
-			msg.putObjectProperty("receiver", receiver);
-			msg.putBytesProperty("message", bytes);
-			producer.send(msg);
+		if (route.getReceivers().isEmpty())
+			return;
+		if (producer.getCredit() < bytes.length) {
+			dropped(1);
+			return;
 		}
+		producer.send(bytes);
+	}
+
+	/**
+	 * publishes a batch of {@link Message} archiving and sending them at once
+	 * messages are sent as long as receivers have memory for them. 
+	 * when backpressure is enabled, the rest is neither archived nor sent, so publisher can retry it later,
+	 * otherwise the rest is archived and dropped like single messages
+	 * 
+	 * @param messages - list of {@link Message} to be published
+	 * @return number of leading messages which have been published
+	 * @throws Exception
+	 */
+	synchronized int publishBatch(List<Message> messages) throws Exception {
+		List<byte[]> batch = new ArrayList<>(messages.size());
+		for (Message message : messages)
+			batch.add(message.rawBytes());
+
+		int admitted = batch.size();
+		if (!route.getReceivers().isEmpty()) {
+			long credit = producer.getCredit();
+			long batchBytes = 0;
+			for (int i = 0; i < batch.size(); i++) {
+				batchBytes += batch.get(i).length;
+				if (batchBytes > credit) {
+					admitted = i;
+					break;
+				}
+			}
+		}
+		int published = MessageBus.OVERFLOW_BACKPRESSURE.equals(Configuration.getMessageOverflow()) ? admitted : batch.size();
+		if (published == 0)
+			return 0;
+
+		List<byte[]> publishedBatch = batch.subList(0, published);
+		for (byte[] bytes : publishedBatch)
+			StatusReporter.setMessageBusStatus().increasePublishedMessagesPerMicroservice(name, bytes.length);
+		try {
+			archive.save(new ArrayList<>(publishedBatch), messages.get(0).getTimestamp());
+		} catch (Exception e) {
+			LoggingService.logWarning("Message Publisher (" + this.name + ")", "unable to archive massage --> " + e.getMessage());
+		}
+
+		if (route.getReceivers().isEmpty())
+			return published;
+		if (admitted > 0)
+			producer.send(batch.subList(0, admitted));
+		if (published > admitted)
+			dropped(published - admitted);
+		return published;
+	}
+
+	/**
+	 * counts messages which receivers have no memory for, on every route of this publisher
+	 * 
+	 * @param count - number of messages
+	 */
+	private void dropped(int count) {
+		for (String receiver : route.getReceivers())
+			StatusReporter.setMessageBusStatus().increaseDroppedMessagesPerRoute(name, receiver, count);
+	}
+
+	/**
+	 * returns bytes which may still be published before receivers run out of memory
+	 * 
+	 * @return credit in bytes
+	 */
+	synchronized long getCredit() {
+		return route.getReceivers().isEmpty() ? Long.MAX_VALUE : producer.getCredit();
 	}
 
 	synchronized void updateRoute(Route route) {
@@ -84,15 +152,17 @@ public class MessagePublisher implements AutoCloseable{
 	}
 
 	/**
-	 * retrieves list of {@link Message} published by this {@link Microservice}
+	 * retrieves {@link Message} published by this {@link Microservice}
 	 * within a time frame
 	 * 
 	 * @param from - beginning of time frame
 	 * @param to - end of time frame
-	 * @return list of {@link Message}
+	 * @param filter - {@link ArchiveFilter} or null
+	 * @param continuationToken - token returned by previous query to continue it, or null
+	 * @return {@link ArchiveCursor}
 	 */
-	public synchronized List<Message> messageQuery(long from, long to) {
-		return archive.messageQuery(from, to);
+	public ArchiveCursor messageQuery(long from, long to, ArchiveFilter filter, String continuationToken) {
+		return archive.messageQuery(from, to, filter, continuationToken);
 	}
 	
 }
@@ -14,11 +14,16 @@ package org.eclipse.iofog.message_bus;
 
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.local_api.MessageCallback;
-import org.hornetq.api.core.client.ClientConsumer;
-import org.hornetq.api.core.client.ClientMessage;
+import org.eclipse.iofog.status_reporter.StatusReporter;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
 
@@ -30,54 +35,135 @@ import static org.eclipse.iofog.utils.logging.LoggingService.logWarning;
  */
 public class MessageReceiver implements AutoCloseable{
 	private static final String MODULE_NAME = "MessageReceiver";
+	private static final ExecutorService flowControl = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "MessageBus : FlowControl");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	private final String name;
 
 	private MessageListener listener;
-	private final ClientConsumer consumer;
+	private final ReceiverMailbox mailbox;
+	private final Map<String, MessageBusConsumer> consumers;
 
-	public MessageReceiver(String name, ClientConsumer consumer) {
+	public MessageReceiver(String name) {
 		this.name = name;
-		this.consumer = consumer;
+		this.consumers = new LinkedHashMap<>();
 		this.listener = null;
+		this.mailbox = new ReceiverMailbox(name, () -> flowControl.execute(this::applyFlowControl));
+	}
+
+	/**
+	 * adds {@link MessageBusConsumer} of the queue holding messages of a publisher
+	 * messages are taken from the consumer into {@link ReceiverMailbox} as they arrive, unless it is full
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 * @param consumer - {@link MessageBusConsumer}
+	 */
+	synchronized void addConsumer(String publisher, MessageBusConsumer consumer) {
+		if (consumer == null)
+			return;
+		consumers.put(publisher, consumer);
+		try {
+			consumer.setListener(mailbox.isPaused() ? null : mailbox);
+		} catch (Exception exp) {
+			logWarning(MODULE_NAME, exp.getMessage());
+		}
+	}
+
+	/**
+	 * stops taking messages from consumers while {@link ReceiverMailbox} is full and resumes it afterwards
+	 * runs on flow control thread, as consumers may not be changed on threads delivering their messages
+	 * 
+	 */
+	private void applyFlowControl() {
+		List<MessageBusConsumer> current;
+		synchronized (this) {
+			current = new ArrayList<>(consumers.values());
+		}
+		MessageListener target = mailbox.isPaused() ? null : mailbox;
+		for (MessageBusConsumer consumer : current) {
+			try {
+				consumer.setListener(target);
+			} catch (Exception exp) {
+				logWarning(MODULE_NAME, exp.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * closes and removes {@link MessageBusConsumer} of a publisher
+	 * 
+	 * @param publisher - ID of publisher {@link Microservice}
+	 */
+	synchronized void removeConsumer(String publisher) {
+		MessageBusConsumer consumer = consumers.remove(publisher);
+		if (consumer != null)
+			consumer.close();
+	}
+
+	/**
+	 * returns IDs of publishers this {@link Microservice} receives from
+	 * 
+	 * @return set of publisher IDs
+	 */
+	synchronized Set<String> getPublishers() {
+		return new HashSet<>(consumers.keySet());
 	}
 
 	/**
 	 * receivers list of {@link Message} sent to this {@link Microservice}
+	 * in {@link PriorityLanes} order of {@link ReceiverMailbox}, messages of a lane by arrival
 	 * 
 	 * @return list of {@link Message}
 	 * @throws Exception
 	 */
 	synchronized List<Message> getMessages() throws Exception {
+		return getMessages(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * receivers list of at most max {@link Message} sent to this {@link Microservice}
+	 * in {@link PriorityLanes} order of {@link ReceiverMailbox}, messages of a lane by arrival
+	 * 
+	 * @param max - maximum number of messages
+	 * @return list of {@link Message}
+	 * @throws Exception
+	 */
+	synchronized List<Message> getMessages(int max) throws Exception {
 		List<Message> result = new ArrayList<>();
 		
-		if (consumer != null || listener == null) {
-			Message message = getMessage();
-			while (message != null) {
-				result.add(message);
-				message = getMessage();
+		if (listener == null) {
+			for (byte[] bytes : mailbox.drain(max)) {
+				StatusReporter.setMessageBusStatus().increaseDeliveredMessagesPerMicroservice(name, bytes.length);
+				result.add(MessageView.wrap(bytes).toMessage());
 			}
 		}
 		return result;
 	}
 
 	/**
-	 * receives only one {@link Message}
+	 * registers waiter to be run once when a {@link Message} arrives for this {@link Microservice}
+	 * waiter should only schedule work, it is run on the thread delivering the message
 	 * 
-	 * @return {@link Message}
-	 * @throws Exception
+	 * @param waiter - {@link Runnable}
+	 * @return false if messages are waiting already or real-time receiving is enabled
 	 */
-	private Message getMessage() throws Exception {
-		if (consumer == null || listener != null)
-			return null;
-
-		Message result = null; 
-		ClientMessage msg = consumer.receiveImmediate();
-		if (msg != null) {
-			msg.acknowledge();
-			result = new Message(msg.getBytesProperty("message"));
-		}
-		return result;
+	synchronized boolean awaitMessages(Runnable waiter) {
+		return listener == null && mailbox.await(waiter);
+	}
+
+	void removeWaiter(Runnable waiter) {
+		mailbox.removeWaiter(waiter);
+	}
+
+	/**
+	 * forwards messages waiting in {@link ReceiverMailbox} to real-time listener
+	 * 
+	 */
+	void forwardMessages() {
+		mailbox.forward();
 	}
 
 	protected String getName() {
@@ -86,42 +172,29 @@ public class MessageReceiver implements AutoCloseable{
 	
 	/**
 	 * enables real-time receiving for this {@link Microservice}
+	 * messages waiting in {@link ReceiverMailbox} are sent first
 	 * 
 	 */
-	void enableRealTimeReceiving() {
-		if (consumer == null || consumer.isClosed())
-			return;
+	synchronized void enableRealTimeReceiving() {
 		listener = new MessageListener(new MessageCallback(name));
-		try {
-			consumer.setMessageHandler(listener);
-		} catch (Exception e) {
-			listener = null;
-		}
+		mailbox.setTarget(listener);
 	}
 	
 	/**
 	 * disables real-time receiving for this {@link Microservice}
 	 * 
 	 */
-	void disableRealTimeReceiving() {
-		try {
-			if (consumer == null || listener == null || consumer.getMessageHandler() == null)
-				return;
-			listener = null;
-			consumer.setMessageHandler(null);
-		} catch (Exception exp) {
-			logWarning(MODULE_NAME, exp.getMessage());
-		}
+	synchronized void disableRealTimeReceiving() {
+		if (listener == null)
+			return;
+		listener = null;
+		mailbox.setTarget(null);
 	}
 	
-	public void close() {
-		if (consumer == null)
-			return;
+	public synchronized void close() {
 		disableRealTimeReceiving();
-		try {
-			consumer.close();
-		} catch (Exception exp) {
-			logWarning(MODULE_NAME, exp.getMessage());
-		}
+		consumers.values().forEach(MessageBusConsumer::close);
+		consumers.clear();
+		mailbox.close();
 	}
 }
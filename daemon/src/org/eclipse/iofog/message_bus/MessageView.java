@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * flyweight over raw bytes of a version 4 {@link Message}
+ * fields are read in place using absolute offsets, nothing is copied
+ * until a field value is requested
+ *
+ */
+public final class MessageView {
+	public static final int HEADER_SIZE = 33;
+	static final short VERSION = 4;
+
+	static final int ID = 0;
+	static final int TAG = 1;
+	static final int GROUP_ID = 2;
+	static final int SEQUENCE_NUMBER = 3;
+	static final int SEQUENCE_TOTAL = 4;
+	static final int PRIORITY = 5;
+	static final int TIMESTAMP = 6;
+	static final int PUBLISHER = 7;
+	static final int AUTH_IDENTIFIER = 8;
+	static final int AUTH_GROUP = 9;
+	static final int CHAIN_POSITION = 10;
+	static final int HASH = 11;
+	static final int PREVIOUS_HASH = 12;
+	static final int NONCE = 13;
+	static final int DIFFICULTY_TARGET = 14;
+	static final int INFO_TYPE = 15;
+	static final int INFO_FORMAT = 16;
+	static final int CONTEXT_DATA = 17;
+	static final int CONTENT_DATA = 18;
+	static final int FIELDS_COUNT = 19;
+
+	// position and width of each field length inside the header
+	private static final int[] LENGTH_POSITIONS = {2, 3, 5, 6, 7, 8, 9, 10, 11, 13, 15, 16, 18, 20, 22, 23, 24, 25, 29};
+	private static final int[] LENGTH_WIDTHS = {1, 2, 1, 1, 1, 1, 1, 1, 2, 2, 1, 2, 2, 2, 1, 1, 1, 4, 4};
+
+	private ByteBuf buffer;
+	private int base;
+	private final int[] offsets = new int[FIELDS_COUNT + 1];
+
+	public MessageView() {
+	}
+
+	public MessageView(ByteBuf buffer) {
+		wrap(buffer, buffer.readerIndex());
+	}
+
+	public static MessageView wrap(byte[] rawBytes) {
+		return new MessageView(Unpooled.wrappedBuffer(rawBytes));
+	}
+
+	public static MessageView wrap(ByteBuffer buffer) {
+		return new MessageView(Unpooled.wrappedBuffer(buffer));
+	}
+
+	/**
+	 * points this view to a message starting at index
+	 * so the same instance can be reused for consecutive messages.
+	 * field lengths are checked against the readable part of the buffer,
+	 * so a truncated or corrupted message is rejected here instead of failing later in a getter
+	 *
+	 * @param buffer - buffer holding the encoded {@link Message}
+	 * @param index - absolute index of the first header byte
+	 * @return this view
+	 * @throws IllegalArgumentException if the message is truncated or a field length is invalid
+	 */
+	public MessageView wrap(ByteBuf buffer, int index) {
+		int end = buffer.writerIndex();
+		if (index < 0 || end - index < HEADER_SIZE)
+			throw new IllegalArgumentException("invalid message, shorter than header");
+		long pos = index + HEADER_SIZE;
+		for (int field = 0; field < FIELDS_COUNT; field++) {
+			int len = length(buffer, index, field);
+			if (len < 0 || pos + len > end)
+				throw new IllegalArgumentException("invalid message, field " + field + " exceeds message bytes");
+			offsets[field] = (int) pos;
+			pos += len;
+		}
+		offsets[FIELDS_COUNT] = (int) pos;
+		this.buffer = buffer;
+		this.base = index;
+		return this;
+	}
+
+	static int length(ByteBuf buffer, int base, int field) {
+		int index = base + LENGTH_POSITIONS[field];
+		switch (LENGTH_WIDTHS[field]) {
+			case 1:
+				return buffer.getUnsignedByte(index);
+			case 2:
+				return buffer.getUnsignedShort(index);
+			default:
+				return buffer.getInt(index);
+		}
+	}
+
+	/**
+	 * reads length of a field from header of an encoded {@link Message} in a byte array
+	 *
+	 * @param rawBytes - array holding at least {@link #HEADER_SIZE} bytes
+	 * @param field - index of the field
+	 * @return int
+	 */
+	private static int length(byte[] rawBytes, int field) {
+		int index = LENGTH_POSITIONS[field];
+		int result = 0;
+		for (int i = 0; i < LENGTH_WIDTHS[field]; i++)
+			result = (result << 8) | (rawBytes[index + i] & 0xFF);
+		return result;
+	}
+
+	/**
+	 * computes size of data part of a {@link Message} from its header
+	 *
+	 * @param header - buffer holding at least {@link #HEADER_SIZE} bytes
+	 * @param index - absolute index of the first header byte
+	 * @return int
+	 */
+	public static int dataSize(ByteBuf header, int index) {
+		int size = 0;
+		for (int field = 0; field < FIELDS_COUNT; field++)
+			size += length(header, index, field);
+		return size;
+	}
+
+	/**
+	 * reads priority of an encoded {@link Message} without wrapping it
+	 *
+	 * @param rawBytes - encoded {@link Message}
+	 * @return priority, 0 if not set or not readable
+	 */
+	public static int priority(byte[] rawBytes) {
+		return (int) number(rawBytes, PRIORITY);
+	}
+
+	/**
+	 * reads timestamp of an encoded {@link Message} without wrapping it
+	 *
+	 * @param rawBytes - encoded {@link Message}
+	 * @return timestamp, 0 if not set or not readable
+	 */
+	public static long timestamp(byte[] rawBytes) {
+		return number(rawBytes, TIMESTAMP);
+	}
+
+	private static long number(byte[] rawBytes, int field) {
+		if (rawBytes == null || rawBytes.length < HEADER_SIZE)
+			return 0;
+		int offset = HEADER_SIZE;
+		for (int i = 0; i < field; i++)
+			offset += length(rawBytes, i);
+		int len = length(rawBytes, field);
+		if (offset + len > rawBytes.length)
+			return 0;
+		long result = 0;
+		for (int i = 0; i < len; i++)
+			result = (result << 8) + (rawBytes[offset + i] & 0xFF);
+		return result;
+	}
+
+	public short getVersion() {
+		return buffer.getShort(base);
+	}
+
+	public boolean isSupportedVersion() {
+		return getVersion() == VERSION;
+	}
+
+	/**
+	 * returns total length of the encoded {@link Message} including header
+	 *
+	 * @return int
+	 */
+	public int getLength() {
+		return offsets[FIELDS_COUNT] - base;
+	}
+
+	ByteBuf buffer() {
+		return buffer;
+	}
+
+	int fieldLength(int field) {
+		return offsets[field + 1] - offsets[field];
+	}
+
+	int fieldOffset(int field) {
+		return offsets[field];
+	}
+
+	String getString(int field) {
+		int len = fieldLength(field);
+		return len > 0 ? buffer.toString(offsets[field], len, UTF_8) : null;
+	}
+
+	long getNumber(int field) {
+		long result = 0;
+		int offset = offsets[field];
+		int len = fieldLength(field);
+		for (int i = 0; i < len; i++)
+			result = (result << 8) + buffer.getUnsignedByte(offset + i);
+		return result;
+	}
+
+	byte[] getBytes(int field) {
+		int len = fieldLength(field);
+		if (len == 0)
+			return null;
+		byte[] result = new byte[len];
+		buffer.getBytes(offsets[field], result);
+		return result;
+	}
+
+	public String getId() {
+		return getString(ID);
+	}
+
+	public String getTag() {
+		return getString(TAG);
+	}
+
+	public String getMessageGroupId() {
+		return getString(GROUP_ID);
+	}
+
+	public int getSequenceNumber() {
+		return (int) getNumber(SEQUENCE_NUMBER);
+	}
+
+	public int getSequenceTotal() {
+		return (int) getNumber(SEQUENCE_TOTAL);
+	}
+
+	public byte getPriority() {
+		return fieldLength(PRIORITY) > 0 ? buffer.getByte(offsets[PRIORITY]) : 0;
+	}
+
+	public long getTimestamp() {
+		return getNumber(TIMESTAMP);
+	}
+
+	public String getPublisher() {
+		return getString(PUBLISHER);
+	}
+
+	public String getAuthIdentifier() {
+		return getString(AUTH_IDENTIFIER);
+	}
+
+	public String getAuthGroup() {
+		return getString(AUTH_GROUP);
+	}
+
+	public long getChainPosition() {
+		return getNumber(CHAIN_POSITION);
+	}
+
+	public String getHash() {
+		return getString(HASH);
+	}
+
+	public String getPreviousHash() {
+		return getString(PREVIOUS_HASH);
+	}
+
+	public String getNonce() {
+		return getString(NONCE);
+	}
+
+	public int getDifficultyTarget() {
+		return (int) getNumber(DIFFICULTY_TARGET);
+	}
+
+	public String getInfoType() {
+		return getString(INFO_TYPE);
+	}
+
+	public String getInfoFormat() {
+		return getString(INFO_FORMAT);
+	}
+
+	public int getContextDataLength() {
+		return fieldLength(CONTEXT_DATA);
+	}
+
+	public int getContentDataLength() {
+		return fieldLength(CONTENT_DATA);
+	}
+
+	/**
+	 * returns context data as a slice of underlying buffer
+	 *
+	 * @return {@link ByteBuf}
+	 */
+	public ByteBuf contextData() {
+		return buffer.slice(offsets[CONTEXT_DATA], fieldLength(CONTEXT_DATA));
+	}
+
+	/**
+	 * returns content data as a slice of underlying buffer
+	 *
+	 * @return {@link ByteBuf}
+	 */
+	public ByteBuf contentData() {
+		return buffer.slice(offsets[CONTENT_DATA], fieldLength(CONTENT_DATA));
+	}
+
+	/**
+	 * returns whole encoded {@link Message} as a slice of underlying buffer
+	 *
+	 * @return {@link ByteBuf}
+	 */
+	public ByteBuf slice() {
+		return buffer.slice(base, getLength());
+	}
+
+	/**
+	 * returns a {@link Message} backed by the same bytes
+	 * its fields are decoded on first access, so this view can be reused afterwards
+	 *
+	 * @return {@link Message}
+	 */
+	public Message toMessage() {
+		return new Message(new MessageView(slice()));
+	}
+
+	private static int utf8Length(String str) {
+		if (str == null)
+			return 0;
+		int len = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 0x80)
+				len++;
+			else if (c < 0x800)
+				len += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				len += 4;
+				i++;
+			} else
+				len += 3;
+		}
+		return len;
+	}
+
+	private static int numberLength(long value, int width) {
+		return value == 0 ? 0 : width;
+	}
+
+	private static int bytesLength(byte[] bytes) {
+		return bytes == null ? 0 : bytes.length;
+	}
+
+	/**
+	 * computes length of encoded {@link Message} without encoding it
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @return int
+	 */
+	public static int encodedLength(Message message) {
+		return HEADER_SIZE
+				+ utf8Length(message.getId())
+				+ utf8Length(message.getTag())
+				+ utf8Length(message.getMessageGroupId())
+				+ numberLength(message.getSequenceNumber(), Integer.BYTES)
+				+ numberLength(message.getSequenceTotal(), Integer.BYTES)
+				+ numberLength(message.getPriority(), Byte.BYTES)
+				+ numberLength(message.getTimestamp(), Long.BYTES)
+				+ utf8Length(message.getPublisher())
+				+ utf8Length(message.getAuthIdentifier())
+				+ utf8Length(message.getAuthGroup())
+				+ numberLength(message.getChainPosition(), Long.BYTES)
+				+ utf8Length(message.getHash())
+				+ utf8Length(message.getPreviousHash())
+				+ utf8Length(message.getNonce())
+				+ numberLength(message.getDifficultyTarget(), Integer.BYTES)
+				+ utf8Length(message.getInfoType())
+				+ utf8Length(message.getInfoFormat())
+				+ bytesLength(message.getContextData())
+				+ bytesLength(message.getContentData());
+	}
+
+	private static void setLength(ByteBuf out, int base, int field, int len) {
+		int index = base + LENGTH_POSITIONS[field];
+		switch (LENGTH_WIDTHS[field]) {
+			case 1:
+				out.setByte(index, len);
+				break;
+			case 2:
+				out.setShort(index, len);
+				break;
+			default:
+				out.setInt(index, len);
+		}
+	}
+
+	private static void writeString(ByteBuf out, int base, int field, String value) {
+		int len = 0;
+		if (value != null) {
+			// writeUtf8 reserves 3 bytes per char, which may exceed capacity of an exactly sized buffer
+			if (out.maxWritableBytes() >= value.length() * 3) {
+				len = ByteBufUtil.writeUtf8(out, value);
+			} else {
+				byte[] bytes = value.getBytes(UTF_8);
+				out.writeBytes(bytes);
+				len = bytes.length;
+			}
+		}
+		setLength(out, base, field, len);
+	}
+
+	private static void writeBytes(ByteBuf out, int base, int field, byte[] value) {
+		if (value != null)
+			out.writeBytes(value);
+		out.setInt(base + LENGTH_POSITIONS[field], bytesLength(value));
+	}
+
+	/**
+	 * encodes {@link Message} directly into the buffer at its writer index
+	 * header lengths are filled in place while data is appended
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @param out - destination buffer
+	 * @return number of written bytes
+	 */
+	public static int encode(Message message, ByteBuf out) {
+		out.ensureWritable(encodedLength(message));
+		int base = out.writerIndex();
+		out.writeZero(HEADER_SIZE);
+		out.setShort(base, VERSION);
+
+		writeString(out, base, ID, message.getId());
+		writeString(out, base, TAG, message.getTag());
+		writeString(out, base, GROUP_ID, message.getMessageGroupId());
+		if (message.getSequenceNumber() != 0) {
+			out.writeInt(message.getSequenceNumber());
+			setLength(out, base, SEQUENCE_NUMBER, Integer.BYTES);
+		}
+		if (message.getSequenceTotal() != 0) {
+			out.writeInt(message.getSequenceTotal());
+			setLength(out, base, SEQUENCE_TOTAL, Integer.BYTES);
+		}
+		if (message.getPriority() != 0) {
+			out.writeByte(message.getPriority());
+			setLength(out, base, PRIORITY, Byte.BYTES);
+		}
+		if (message.getTimestamp() != 0) {
+			out.writeLong(message.getTimestamp());
+			setLength(out, base, TIMESTAMP, Long.BYTES);
+		}
+		writeString(out, base, PUBLISHER, message.getPublisher());
+		writeString(out, base, AUTH_IDENTIFIER, message.getAuthIdentifier());
+		writeString(out, base, AUTH_GROUP, message.getAuthGroup());
+		if (message.getChainPosition() != 0) {
+			out.writeLong(message.getChainPosition());
+			setLength(out, base, CHAIN_POSITION, Long.BYTES);
+		}
+		writeString(out, base, HASH, message.getHash());
+		writeString(out, base, PREVIOUS_HASH, message.getPreviousHash());
+		writeString(out, base, NONCE, message.getNonce());
+		if (message.getDifficultyTarget() != 0) {
+			out.writeInt(message.getDifficultyTarget());
+			setLength(out, base, DIFFICULTY_TARGET, Integer.BYTES);
+		}
+		writeString(out, base, INFO_TYPE, message.getInfoType());
+		writeString(out, base, INFO_FORMAT, message.getInfoFormat());
+		writeBytes(out, base, CONTEXT_DATA, message.getContextData());
+		writeBytes(out, base, CONTENT_DATA, message.getContentData());
+
+		return out.writerIndex() - base;
+	}
+}
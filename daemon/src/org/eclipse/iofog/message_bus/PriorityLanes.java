@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.function.IntPredicate;
+
+/**
+ * delivery lanes by {@link Message} priority, the lower the number, the higher the priority.
+ * priority 0 means the priority is not set, such messages go to {@link #DEFAULT_LANE},
+ * so messages tagged with priority 1 or 2 overtake them and priority 4 or more falls behind them.
+ * <pre>
+ * priority  1  2  0,3  4..255
+ * lane      0  1   2     3
+ * </pre>
+ * higher priority lanes are served first, but a waiting lane is served at least once
+ * per {@link #STARVATION_LIMIT} messages of higher priority lanes.
+ * instances are not thread safe
+ *
+ */
+public class PriorityLanes {
+	public static final int LANES = 4;
+	static final int DEFAULT_LANE = 2;
+	static final int STARVATION_LIMIT = 16;
+	private static final byte[] BUS_PRIORITIES = {9, 6, 4, 1};
+
+	private final int[] skipped = new int[LANES];
+
+	/**
+	 * returns lane of {@link Message} priority
+	 *
+	 * @param priority - priority of {@link Message}
+	 * @return lane, 0 is the highest priority
+	 */
+	public static int getLane(int priority) {
+		priority &= 0xFF;
+		return priority == 0 ? DEFAULT_LANE : Math.min(priority - 1, LANES - 1);
+	}
+
+	/**
+	 * returns lane of encoded {@link Message}
+	 *
+	 * @param message - encoded {@link Message}
+	 * @return lane, 0 is the highest priority
+	 */
+	public static int getLane(byte[] message) {
+		return getLane(MessageView.priority(message));
+	}
+
+	/**
+	 * maps {@link Message} priority onto message bus priority, 0 to 9 where 9 is the highest
+	 * messages of the same lane get the same priority, default lane gets the default priority 4
+	 *
+	 * @param priority - priority of {@link Message}
+	 * @return byte
+	 */
+	static byte getBusPriority(int priority) {
+		return BUS_PRIORITIES[getLane(priority)];
+	}
+
+	/**
+	 * selects lane to serve next
+	 *
+	 * @param waiting - tells if a lane has messages waiting
+	 * @return lane or -1 if no lane has messages waiting
+	 */
+	public int select(IntPredicate waiting) {
+		int selected = -1;
+		int starved = -1;
+		int waitingLanes = 0;
+		for (int lane = 0; lane < LANES; lane++) {
+			if (!waiting.test(lane))
+				continue;
+			waitingLanes |= 1 << lane;
+			if (selected < 0)
+				selected = lane;
+			else if (starved < 0 && skipped[lane] >= STARVATION_LIMIT)
+				starved = lane;
+		}
+		if (starved >= 0)
+			selected = starved;
+		for (int lane = 0; lane < LANES; lane++)
+			skipped[lane] = (waitingLanes & 1 << lane) != 0 && lane != selected ? skipped[lane] + 1 : 0;
+		return selected;
+	}
+}
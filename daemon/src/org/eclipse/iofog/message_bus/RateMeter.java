@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counts events and tracks their exponentially weighted 
+ * rates per second over 1, 10 and 60 seconds.
+ * rates are recalculated by the caller which crosses a tick boundary, 
+ * so neither counting nor reading takes a lock
+ * 
+ */
+public class RateMeter {
+	private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder uncounted = new LongAdder();
+	private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+	private final Ewma rate1s = new Ewma(1);
+	private final Ewma rate10s = new Ewma(10);
+	private final Ewma rate60s = new Ewma(60);
+
+	/**
+	 * counts a number of events
+	 * 
+	 * @param n - number of events
+	 */
+	public void mark(long n) {
+		tickIfNecessary();
+		count.add(n);
+		uncounted.add(n);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getRate1s() {
+		tickIfNecessary();
+		return rate1s.getRate();
+	}
+
+	public double getRate10s() {
+		tickIfNecessary();
+		return rate10s.getRate();
+	}
+
+	public double getRate60s() {
+		tickIfNecessary();
+		return rate60s.getRate();
+	}
+
+	/**
+	 * updates rates for every tick elapsed since the last update
+	 * only the thread which moves the last tick forward does it
+	 * 
+	 */
+	private void tickIfNecessary() {
+		long oldTick = lastTick.get();
+		long age = System.nanoTime() - oldTick;
+		if (age < TICK_INTERVAL)
+			return;
+		long ticks = age / TICK_INTERVAL;
+		if (!lastTick.compareAndSet(oldTick, oldTick + ticks * TICK_INTERVAL))
+			return;
+		long events = uncounted.sumThenReset();
+		for (long i = 0; i < ticks; i++) {
+			rate1s.tick(events);
+			rate10s.tick(events);
+			rate60s.tick(events);
+			events = 0;
+		}
+	}
+
+	/**
+	 * exponentially weighted moving average of events per tick
+	 * 
+	 */
+	private static class Ewma {
+		private final double alpha;
+		private volatile boolean initialized = false;
+		private volatile double rate = 0;
+
+		Ewma(int seconds) {
+			this.alpha = 1 - Math.exp(-1d / seconds);
+		}
+
+		void tick(long events) {
+			if (initialized) {
+				rate += alpha * (events - rate);
+			} else {
+				rate = events;
+				initialized = true;
+			}
+		}
+
+		double getRate() {
+			return rate;
+		}
+	}
+}
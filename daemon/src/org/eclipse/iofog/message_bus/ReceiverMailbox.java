@@ -0,0 +1,591 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.iofog.microservice.Microservice;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import io.netty.buffer.ByteBufUtil;
+
+import static org.eclipse.iofog.message_bus.MessageView.HEADER_SIZE;
+
+/**
+ * mailbox of a receiver {@link Microservice}, taking messages of all its publishers from the engine as they arrive,
+ * so messages waiting for a slow receiver do not hold memory of the engine shared with other receivers.
+ * messages wait in {@link PriorityLanes} lanes and are taken out in lane order with its starvation limit,
+ * while messages of a lane keep their order.
+ * up to {@link #MEMORY_LIMIT} bytes are kept in memory, while all mailboxes together keep at most
+ * {@link #MEMORY_SHARE} of the memory limit. the rest is appended to {@link ArchiveSegment} files of its lane
+ * in a directory of the receiver and read back in order, while mailbox files of all receivers take
+ * at most {@link #DISK_SHARE} of the disk limit. once the disk backlog of a lane has been read,
+ * its files are removed and the lane keeps messages in memory again.
+ * when there is no room left, the mailbox keeps messages which are on their way already
+ * and asks to stop taking messages from the engine until it is empty, so they wait in the engine
+ * and its memory limit slows publishers down or drops messages as configured.
+ * in real-time mode messages are forwarded to the real-time listener in batches as it has room for them.
+ * waiters of long polling receivers are notified once as messages arrive.
+ * when message TTL is set, messages waiting longer since they have been published are removed and counted
+ * as they are taken out of the mailbox, and expired messages at the head of memory are removed as new ones arrive.
+ * messages of the mailbox do not survive a restart, like messages of the engine
+ *
+ */
+class ReceiverMailbox extends MessageListener implements AutoCloseable {
+	private static final String MODULE_NAME = "Receiver Mailbox";
+	static final long MEMORY_LIMIT = 4_000_000;
+	static final float MEMORY_SHARE = 0.25f;
+	static final float DISK_SHARE = 0.25f;
+	private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+	private static final int FORWARD_BATCH_SIZE = 256;
+
+	private static final AtomicLong totalMemoryBytes = new AtomicLong();
+	private static final AtomicLong totalDiskBytes = new AtomicLong();
+
+	private final String name;
+	private final File directory;
+	private final Runnable flowControl;
+	private final List<Lane> lanes;
+	private final PriorityLanes selector = new PriorityLanes();
+	private long memoryBytes = 0;
+	private long backlogMessages = 0;
+	private long backlogBytes = 0;
+	private long nextSegment = 0;
+	private MessageListener target;
+	private boolean forwarding = false;
+	private final List<Runnable> waiters = new ArrayList<>();
+	private boolean paused = false;
+	private boolean closed = false;
+
+	/**
+	 * @param name - ID of receiver {@link Microservice}
+	 * @param flowControl - run when the mailbox stops or resumes taking messages from the engine, 
+	 * 						holding lock of the mailbox, so it should only schedule work checking {@link #isPaused()}
+	 */
+	ReceiverMailbox(String name, Runnable flowControl) {
+		this.name = name;
+		this.flowControl = flowControl;
+		this.directory = new File(Configuration.getDiskDirectory() + "messages/mailbox/" + name);
+		this.lanes = new ArrayList<>(PriorityLanes.LANES);
+		for (int lane = 0; lane < PriorityLanes.LANES; lane++)
+			lanes.add(new Lane());
+		deleteFiles();
+	}
+
+	/**
+	 * returns disk space used by mailbox files of all receivers
+	 *
+	 * @return size in bytes
+	 */
+	static long getTotalDiskBytes() {
+		return totalDiskBytes.get();
+	}
+
+	private static long getMemoryBudget() {
+		return (long) (Configuration.getMemoryLimit() * 1_000_000 * MEMORY_SHARE);
+	}
+
+	private static long getDiskBudget() {
+		return (long) (Configuration.getDiskLimit() * 1_000_000_000 * DISK_SHARE);
+	}
+
+	/**
+	 * takes a {@link Message} from the engine
+	 *
+	 * @param message - encoded {@link Message}
+	 */
+	@Override
+	public synchronized void onMessage(byte[] message) {
+		if (closed)
+			return;
+		long now = System.currentTimeMillis();
+		if (isExpired(message, now)) {
+			expired(1);
+			return;
+		}
+		if (target != null && !forwarding && isEmpty() && target.getRoom() > 0) {
+			target.onMessage(message);
+			return;
+		}
+		removeExpired(now);
+		if (!lanes.get(PriorityLanes.getLane(message)).offer(message) && !paused) {
+			paused = true;
+			LoggingService.logInfo(MODULE_NAME + " (" + name + ")", "mailbox is full, messages wait in the engine");
+			flowControl.run();
+		}
+		report();
+		notifyWaiters();
+	}
+
+	private void addMemoryBytes(long bytes) {
+		memoryBytes += bytes;
+		totalMemoryBytes.addAndGet(bytes);
+	}
+
+	private boolean hasMemoryFor(byte[] message) {
+		return memoryBytes + message.length <= MEMORY_LIMIT
+				&& totalMemoryBytes.get() + message.length <= getMemoryBudget();
+	}
+
+	/**
+	 * tells if the mailbox has asked to stop taking messages from the engine
+	 *
+	 * @return boolean
+	 */
+	synchronized boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * resumes taking messages from the engine once the mailbox is empty
+	 *
+	 */
+	private void resumeIfEmpty() {
+		if (paused && !closed && isEmpty()) {
+			paused = false;
+			flowControl.run();
+		}
+	}
+
+	/**
+	 * checks if a {@link Message} has been waiting longer than message TTL since it has been published
+	 *
+	 * @param message - encoded {@link Message}
+	 * @param now - current time in milliseconds
+	 * @return boolean
+	 */
+	private static boolean isExpired(byte[] message, long now) {
+		long ttl = Configuration.getMessageTtl();
+		return ttl > 0 && now - MessageView.timestamp(message) > ttl;
+	}
+
+	private void expired(long count) {
+		StatusReporter.setMessageBusStatus().increaseExpiredMessagesPerMicroservice(name, count);
+	}
+
+	/**
+	 * removes expired messages from the head of memory of every lane, messages behind them are younger
+	 *
+	 * @param now - current time in milliseconds
+	 */
+	private void removeExpired(long now) {
+		int count = 0;
+		for (Lane lane : lanes)
+			count += lane.removeExpired(now);
+		if (count > 0)
+			expired(count);
+	}
+
+	private boolean isEmpty() {
+		for (Lane lane : lanes)
+			if (!lane.isEmpty())
+				return false;
+		return true;
+	}
+
+	/**
+	 * removes the oldest {@link Message} of the lane selected by {@link PriorityLanes}, which has not expired
+	 *
+	 * @return encoded {@link Message} or null if mailbox is empty
+	 */
+	private byte[] poll() {
+		long now = System.currentTimeMillis();
+		while (true) {
+			int lane = selector.select(index -> !lanes.get(index).isEmpty());
+			if (lane < 0)
+				return null;
+			byte[] message = lanes.get(lane).take();
+			if (message == null)
+				continue;
+			if (!isExpired(message, now))
+				return message;
+			expired(1);
+		}
+	}
+
+	/**
+	 * removes waiting messages in {@link PriorityLanes} order
+	 * reading stops once {@link #MEMORY_LIMIT} bytes have been read from the disk
+	 *
+	 * @param max - maximum number of messages
+	 * @return list of encoded {@link Message}
+	 */
+	synchronized List<byte[]> drain(int max) {
+		List<byte[]> result = new ArrayList<>();
+		long backlogRead = 0;
+		while (result.size() < max && backlogRead < MEMORY_LIMIT) {
+			long backlogBefore = backlogBytes;
+			byte[] message = poll();
+			if (message == null)
+				break;
+			backlogRead += backlogBefore - backlogBytes;
+			result.add(message);
+		}
+		report();
+		resumeIfEmpty();
+		return result;
+	}
+
+	/**
+	 * sets listener for real-time receiving, waiting messages are forwarded to it as it has room for them
+	 *
+	 * @param target - {@link MessageListener} or null
+	 */
+	void setTarget(MessageListener target) {
+		synchronized (this) {
+			this.target = target;
+			if (target == null)
+				return;
+			// long polling receivers do not get messages in real-time mode
+			notifyWaiters();
+		}
+		forward();
+	}
+
+	/**
+	 * forwards waiting messages to real-time listener in batches, as long as it has room for them
+	 * called when real-time receiving is enabled and when the listener has made room.
+	 * messages are forwarded without holding lock of the mailbox, 
+	 * new messages are queued meanwhile, so they are forwarded in order
+	 *
+	 */
+	void forward() {
+		while (true) {
+			MessageListener current;
+			List<byte[]> batch;
+			synchronized (this) {
+				if (forwarding || closed || target == null)
+					return;
+				int room = isEmpty() ? 0 : Math.min(target.getRoom(), FORWARD_BATCH_SIZE);
+				if (room <= 0) {
+					report();
+					resumeIfEmpty();
+					return;
+				}
+				current = target;
+				batch = new ArrayList<>(room);
+				byte[] message;
+				while (batch.size() < room && (message = poll()) != null)
+					batch.add(message);
+				forwarding = true;
+			}
+			try {
+				for (byte[] message : batch)
+					current.onMessage(message);
+			} finally {
+				synchronized (this) {
+					forwarding = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * registers waiter to be run once when a message arrives, if the mailbox is empty
+	 * waiter is run holding lock of the mailbox, so it should only schedule work
+	 *
+	 * @param waiter - {@link Runnable}
+	 * @return false if messages are waiting already or the mailbox is closed
+	 */
+	synchronized boolean await(Runnable waiter) {
+		if (closed || !isEmpty())
+			return false;
+		waiters.add(waiter);
+		return true;
+	}
+
+	synchronized void removeWaiter(Runnable waiter) {
+		waiters.remove(waiter);
+	}
+
+	private void notifyWaiters() {
+		if (waiters.isEmpty())
+			return;
+		List<Runnable> notified = new ArrayList<>(waiters);
+		waiters.clear();
+		for (Runnable waiter : notified) {
+			try {
+				waiter.run();
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME + " (" + name + ")", e.getMessage());
+			}
+		}
+	}
+
+	private void report() {
+		StatusReporter.setMessageBusStatus().setMailbox(name, memoryBytes, backlogMessages, backlogBytes);
+	}
+
+	private void deleteFiles() {
+		File[] files = directory.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		notifyWaiters();
+		lanes.forEach(Lane::clear);
+		addMemoryBytes(-memoryBytes);
+		deleteFiles();
+		directory.delete();
+	}
+
+	/**
+	 * messages of a {@link PriorityLanes} lane, in memory, in the disk backlog
+	 * and in overflow, which holds messages arrived when there was no room left.
+	 * they are taken in this order, so messages of the lane keep their order.
+	 * called holding lock of the mailbox
+	 *
+	 */
+	private class Lane {
+		private final ArrayDeque<byte[]> memory = new ArrayDeque<>();
+		private final ArrayDeque<byte[]> overflow = new ArrayDeque<>();
+
+		// disk backlog, the last segment is being appended
+		private final ArrayDeque<File> segments = new ArrayDeque<>();
+		private ArchiveSegment writer;
+		private ArchiveSegment.Reader reader;
+		private int readRecord = 0;
+		private boolean readerComplete;
+		private long messages = 0;
+		private long bytes = 0;
+		private long diskBytes = 0;
+		private int unsyncedRecords = 0;
+		private long lastSync = 0;
+
+		/**
+		 * adds a {@link Message} to memory if the mailbox has room, otherwise to the disk backlog or overflow
+		 *
+		 * @param message - encoded {@link Message}
+		 * @return false if the message has been added to overflow
+		 */
+		boolean offer(byte[] message) {
+			if (overflow.isEmpty() && messages == 0 && hasMemoryFor(message)) {
+				memory.add(message);
+				addMemoryBytes(message.length);
+				return true;
+			}
+			if (overflow.isEmpty() && spill(message))
+				return true;
+			overflow.add(message);
+			addMemoryBytes(message.length);
+			return false;
+		}
+
+		boolean isEmpty() {
+			return memory.isEmpty() && messages == 0 && overflow.isEmpty();
+		}
+
+		/**
+		 * removes expired messages from the head of memory
+		 *
+		 * @param now - current time in milliseconds
+		 * @return number of removed messages
+		 */
+		int removeExpired(long now) {
+			int count = 0;
+			while (!memory.isEmpty() && isExpired(memory.peek(), now)) {
+				addMemoryBytes(-memory.poll().length);
+				count++;
+			}
+			return count;
+		}
+
+		/**
+		 * removes the oldest {@link Message}
+		 *
+		 * @return encoded {@link Message} or null if the lane is empty
+		 */
+		byte[] take() {
+			byte[] message = memory.poll();
+			if (message != null) {
+				addMemoryBytes(-message.length);
+				return message;
+			}
+			while (messages > 0) {
+				message = readBacklog();
+				if (message != null)
+					return message;
+			}
+			message = overflow.poll();
+			if (message != null)
+				addMemoryBytes(-message.length);
+			return message;
+		}
+
+		/**
+		 * appends {@link Message} to the disk backlog, if disk share of mailboxes has room for it
+		 * appended records are forced to the disk following archive fsync policy
+		 *
+		 * @param message - encoded {@link Message}
+		 * @return false if the message has not been appended
+		 */
+		private boolean spill(byte[] message) {
+			try {
+				int dataSize = message.length - HEADER_SIZE;
+				if (writer == null || !writer.hasRoom(dataSize)) {
+					int capacity = Math.max(SEGMENT_SIZE, dataSize);
+					if (totalDiskBytes.get() + capacity > getDiskBudget())
+						return false;
+					if (writer != null)
+						closeWriter();
+					if (!directory.exists())
+						directory.mkdirs();
+					File indexFile = new File(directory, name + "_" + nextSegment++ + ".idx");
+					writer = new ArchiveSegment(indexFile);
+					writer.create(capacity);
+					segments.add(indexFile);
+					addDiskBytes(ArchiveSegment.size(indexFile));
+				}
+				writer.append(message);
+				addBacklog(1, message.length);
+				unsyncedRecords++;
+				if (isSyncDue())
+					sync();
+				return true;
+			} catch (Exception e) {
+				LoggingService.logWarning(MODULE_NAME + " (" + name + ")", "unable to spill message --> " + e.getMessage());
+				return false;
+			}
+		}
+
+		private void addBacklog(long count, long size) {
+			messages += count;
+			bytes += size;
+			backlogMessages += count;
+			backlogBytes += size;
+		}
+
+		private void addDiskBytes(long bytes) {
+			diskBytes += bytes;
+			totalDiskBytes.addAndGet(bytes);
+		}
+
+		private boolean isSyncDue() {
+			int records = Configuration.getArchiveFsyncRecords();
+			long interval = Configuration.getArchiveFsyncIntervalMillis();
+			return (records > 0 && unsyncedRecords >= records)
+					|| (interval > 0 && System.currentTimeMillis() - lastSync >= interval);
+		}
+
+		private void sync() throws IOException {
+			writer.sync();
+			unsyncedRecords = 0;
+			lastSync = System.currentTimeMillis();
+		}
+
+		/**
+		 * closes segment being appended, which truncates its preallocated space
+		 *
+		 * @throws IOException
+		 */
+		private void closeWriter() throws IOException {
+			File indexFile = writer.getIndexFile();
+			long size = ArchiveSegment.size(indexFile);
+			try {
+				writer.close();
+			} finally {
+				writer = null;
+				addDiskBytes(ArchiveSegment.size(indexFile) - size);
+			}
+		}
+
+		/**
+		 * reads the next {@link Message} of the disk backlog, removing segments which have been read
+		 * the segment being appended is flushed and mapped again when records mapped before have been read
+		 *
+		 * @return encoded {@link Message} or null if a record or a segment has been skipped
+		 */
+		private byte[] readBacklog() {
+			File indexFile = segments.peek();
+			boolean appended = segments.size() == 1;
+			try {
+				if (reader == null || (appended && readRecord == reader.size())) {
+					if (appended)
+						writer.flush();
+					reader = new ArchiveSegment.Reader(indexFile, appended ? writer.getCommittedIndexSize() : indexFile.length());
+					readerComplete = !appended;
+				}
+			} catch (IOException e) {
+				LoggingService.logWarning(MODULE_NAME + " (" + name + ")", "unable to read disk backlog --> " + e.getMessage());
+				clearBacklog();
+				return null;
+			}
+			if (readRecord == reader.size()) {
+				if (appended) {
+					clearBacklog();
+				} else if (!readerComplete) {
+					// segment has been closed after it has been mapped
+					reader = null;
+				} else {
+					segments.poll();
+					long size = ArchiveSegment.size(indexFile);
+					ArchiveSegment.delete(indexFile);
+					addDiskBytes(-size);
+					reader = null;
+					readRecord = 0;
+				}
+				return null;
+			}
+
+			int record = readRecord++;
+			byte[] message = null;
+			try {
+				message = ByteBufUtil.getBytes(reader.getMessageView(record).slice());
+			} catch (IOException e) {
+				LoggingService.logWarning(MODULE_NAME + " (" + name + ")", "skipped unreadable message --> " + e.getMessage());
+			}
+			addBacklog(-1, -(HEADER_SIZE + reader.getDataSize(record)));
+			if (messages == 0)
+				clearBacklog();
+			return message;
+		}
+
+		/**
+		 * removes files of the disk backlog
+		 *
+		 */
+		private void clearBacklog() {
+			if (writer != null) {
+				try {
+					closeWriter();
+				} catch (IOException e) {
+					LoggingService.logWarning(MODULE_NAME + " (" + name + ")", e.getMessage());
+				}
+			}
+			segments.forEach(ArchiveSegment::delete);
+			segments.clear();
+			addDiskBytes(-diskBytes);
+			reader = null;
+			readRecord = 0;
+			addBacklog(-messages, -bytes);
+			unsyncedRecords = 0;
+		}
+
+		void clear() {
+			memory.clear();
+			overflow.clear();
+			clearBacklog();
+		}
+	}
+}
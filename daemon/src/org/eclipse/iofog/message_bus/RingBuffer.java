@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * bounded lock-free ring buffer of encoded {@link Message} 
+ * for a single producer and a single consumer at a time.
+ * slots are preallocated, offering and polling do not allocate
+ * 
+ */
+class RingBuffer {
+	private final byte[][] slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity - number of slots, rounded up to a power of 2
+	 */
+	RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		slots = new byte[size][];
+		mask = size - 1;
+	}
+
+	/**
+	 * adds a message, if there is a free slot
+	 * 
+	 * @param message - encoded {@link Message}
+	 * @return false if buffer is full
+	 */
+	boolean offer(byte[] message) {
+		long t = tail.get();
+		if (t - head.get() == slots.length)
+			return false;
+		slots[(int) t & mask] = message;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * removes the oldest message
+	 * 
+	 * @return encoded {@link Message} or null if buffer is empty
+	 */
+	byte[] poll() {
+		long h = head.get();
+		if (h == tail.get())
+			return null;
+		int index = (int) h & mask;
+		byte[] message = slots[index];
+		slots[index] = null;
+		head.lazySet(h + 1);
+		return message;
+	}
+
+	/**
+	 * removes up to batch length messages at once, 
+	 * publishing the new head once for the whole batch
+	 * 
+	 * @param batch - array to fill with messages
+	 * @return number of drained messages
+	 */
+	int drain(byte[][] batch) {
+		long h = head.get();
+		int count = (int) Math.min(batch.length, tail.get() - h);
+		for (int i = 0; i < count; i++) {
+			int index = (int) (h + i) & mask;
+			batch[i] = slots[index];
+			slots[index] = null;
+		}
+		if (count > 0)
+			head.lazySet(h + count);
+		return count;
+	}
+
+	boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+}
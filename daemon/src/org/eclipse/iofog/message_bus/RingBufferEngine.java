@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntPredicate;
+
+import org.eclipse.iofog.microservice.Microservice;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * in-process {@link MessageBusEngine} 
+ * every receiver has a preallocated {@link RingBuffer} per publisher routing to it and per {@link PriorityLanes} lane.
+ * a published message is stored once and its reference is put into rings of all receivers.
+ * publishes of a publisher are serialized by {@link MessagePublisher}, so every ring has a single producer
+ * 
+ */
+public class RingBufferEngine implements MessageBusEngine {
+	private static final String MODULE_NAME = "Ring Buffer Engine";
+	private static final int RING_CAPACITY = 8192;
+	private static final int BATCH_SIZE = 256;
+	private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final Map<String, List<RingBufferConsumer>> subscriptions = new ConcurrentHashMap<>();
+	private final Map<String, RingBufferConsumer> consumers = new ConcurrentHashMap<>();
+	private final Map<String, RingBufferProducer> producers = new ConcurrentHashMap<>();
+	private final AtomicLong usedBytes = new AtomicLong();
+	private volatile long memoryLimit;
+
+	public RingBufferEngine() {
+		setMemoryLimit();
+	}
+
+	private static String getKey(String publisher, String receiver) {
+		return publisher + "." + receiver;
+	}
+
+	@Override
+	public void createProducer(String publisher) {
+		producers.put(publisher, new RingBufferProducer(publisher));
+	}
+
+	@Override
+	public MessageBusProducer getProducer(String publisher) {
+		return producers.computeIfAbsent(publisher, RingBufferProducer::new);
+	}
+
+	@Override
+	public boolean isProducerClosed(String publisher) {
+		RingBufferProducer producer = producers.get(publisher);
+		return producer == null || producer.isClosed();
+	}
+
+	@Override
+	public void removeProducer(String publisher) {
+		RingBufferProducer producer = producers.remove(publisher);
+		if (producer != null)
+			producer.close();
+	}
+
+	@Override
+	public void createConsumer(String publisher, String receiver) {
+		String key = getKey(publisher, receiver);
+		RingBufferConsumer consumer = consumers.get(key);
+		if (consumer != null && !consumer.isClosed())
+			return;
+		removeConsumer(publisher, receiver);
+		consumer = new RingBufferConsumer(publisher, receiver);
+		consumers.put(key, consumer);
+		subscriptions.computeIfAbsent(publisher, k -> new CopyOnWriteArrayList<>()).add(consumer);
+	}
+
+	@Override
+	public MessageBusConsumer getConsumer(String publisher, String receiver) {
+		createConsumer(publisher, receiver);
+		return consumers.get(getKey(publisher, receiver));
+	}
+
+	@Override
+	public boolean isConsumerClosed(String publisher, String receiver) {
+		RingBufferConsumer consumer = consumers.get(getKey(publisher, receiver));
+		return consumer == null || consumer.isClosed();
+	}
+
+	@Override
+	public void removeConsumer(String publisher, String receiver) {
+		RingBufferConsumer consumer = consumers.remove(getKey(publisher, receiver));
+		if (consumer == null)
+			return;
+		List<RingBufferConsumer> subscribers = subscriptions.get(publisher);
+		if (subscribers != null)
+			subscribers.remove(consumer);
+		consumer.close();
+	}
+
+	/**
+	 * sets limit of bytes waiting in all rings
+	 * messages are dropped when the limit is reached
+	 * 
+	 */
+	@Override
+	public void setMemoryLimit() {
+		memoryLimit = (long) (Configuration.getMemoryLimit() * 1_000_000);
+	}
+
+	@Override
+	public void close() {
+		consumers.values().forEach(RingBufferConsumer::close);
+		consumers.clear();
+		subscriptions.clear();
+		producers.values().forEach(RingBufferProducer::close);
+		producers.clear();
+	}
+
+	/**
+	 * puts messages of a publisher into rings of its receivers
+	 * 
+	 */
+	private class RingBufferProducer implements MessageBusProducer {
+		private final String publisher;
+		private volatile boolean closed = false;
+
+		RingBufferProducer(String publisher) {
+			this.publisher = publisher;
+		}
+
+		@Override
+		public void send(byte[] message) {
+			List<RingBufferConsumer> subscribers = subscriptions.get(publisher);
+			if (subscribers == null)
+				return;
+			for (RingBufferConsumer consumer : subscribers) {
+				consumer.offer(message);
+				consumer.signal();
+			}
+		}
+
+		@Override
+		public void send(List<byte[]> messages) {
+			List<RingBufferConsumer> subscribers = subscriptions.get(publisher);
+			if (subscribers == null)
+				return;
+			for (RingBufferConsumer consumer : subscribers) {
+				for (byte[] message : messages)
+					consumer.offer(message);
+				consumer.signal();
+			}
+		}
+
+		@Override
+		public long getCredit() {
+			return memoryLimit - usedBytes.get();
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	/**
+	 * takes messages from rings of a receiver, higher priority lanes first
+	 * while a listener is set, a dispatcher thread drains the rings in batches
+	 * 
+	 */
+	private class RingBufferConsumer implements MessageBusConsumer {
+		private final String publisher;
+		private final String receiver;
+		private final RingBuffer[] rings = new RingBuffer[PriorityLanes.LANES];
+		private final PriorityLanes lanes = new PriorityLanes();
+		private final IntPredicate hasMessages = lane -> !rings[lane].isEmpty();
+		private MessageListener listener;
+		private volatile Thread dispatcher;
+		private final AtomicBoolean parked = new AtomicBoolean();
+		private volatile boolean closed = false;
+
+		RingBufferConsumer(String publisher, String receiver) {
+			this.publisher = publisher;
+			this.receiver = receiver;
+			for (int lane = 0; lane < rings.length; lane++)
+				rings[lane] = new RingBuffer(RING_CAPACITY);
+		}
+
+		/**
+		 * puts message into ring of its lane, dropping and counting it if the ring is full or memory limit is reached
+		 * 
+		 * @param message - encoded {@link Message}
+		 */
+		void offer(byte[] message) {
+			if (closed)
+				return;
+			if (usedBytes.addAndGet(message.length) > memoryLimit || !rings[PriorityLanes.getLane(message)].offer(message)) {
+				usedBytes.addAndGet(-message.length);
+				StatusReporter.setMessageBusStatus().increaseDroppedMessagesPerRoute(publisher, receiver, 1);
+			}
+		}
+
+		/**
+		 * wakes dispatcher thread up, if it has parked waiting for messages.
+		 * compareAndSet orders offered messages before reading the parked flag,
+		 * so either the dispatcher sees the messages before parking or it is unparked here
+		 * 
+		 */
+		void signal() {
+			if (parked.compareAndSet(true, false)) {
+				Thread thread = dispatcher;
+				if (thread != null)
+					LockSupport.unpark(thread);
+			}
+		}
+
+		/**
+		 * removes the next message from rings in lane order
+		 * must be called while holding the consumer lock
+		 * 
+		 * @return encoded {@link Message} or null if rings are empty
+		 */
+		private byte[] poll() {
+			int lane = lanes.select(hasMessages);
+			return lane < 0 ? null : rings[lane].poll();
+		}
+
+		@Override
+		public synchronized byte[] receive() {
+			byte[] message = poll();
+			if (message != null)
+				usedBytes.addAndGet(-message.length);
+			return message;
+		}
+
+		@Override
+		public synchronized void setListener(MessageListener listener) {
+			this.listener = listener;
+			if (listener == null) {
+				Thread thread = dispatcher;
+				dispatcher = null;
+				if (thread != null)
+					LockSupport.unpark(thread);
+			} else if (dispatcher == null && !closed) {
+				dispatcher = new Thread(this::dispatch, "MessageBus : RingBufferConsumer");
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+			}
+		}
+
+		/**
+		 * delivers messages to listener in batches until real-time receiving is disabled
+		 * 
+		 */
+		private void dispatch() {
+			byte[][] batch = new byte[BATCH_SIZE][];
+			while (dispatcher == Thread.currentThread()) {
+				MessageListener current;
+				int count;
+				synchronized (this) {
+					current = listener;
+					count = 0;
+					if (current != null)
+						while (count < batch.length && (batch[count] = poll()) != null)
+							count++;
+				}
+				if (count == 0) {
+					parked.set(true);
+					if (isEmpty() && dispatcher == Thread.currentThread())
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					parked.set(false);
+					continue;
+				}
+				for (int i = 0; i < count; i++) {
+					byte[] message = batch[i];
+					batch[i] = null;
+					usedBytes.addAndGet(-message.length);
+					try {
+						current.onMessage(message);
+					} catch (Exception exp) {
+						LoggingService.logWarning(MODULE_NAME, exp.getMessage());
+					}
+				}
+			}
+		}
+
+		private boolean isEmpty() {
+			for (RingBuffer ring : rings)
+				if (!ring.isEmpty())
+					return false;
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public synchronized void close() {
+			closed = true;
+			setListener(null);
+			byte[] message;
+			while ((message = poll()) != null)
+				usedBytes.addAndGet(-message.length);
+		}
+	}
+}
@@ -15,6 +15,7 @@ package org.eclipse.iofog.resource_consumption_manager;
 import org.apache.commons.lang.SystemUtils;
 import org.eclipse.iofog.IOFogModule;
 import org.eclipse.iofog.command_line.util.CommandShellResultSet;
+import org.eclipse.iofog.message_bus.MessageBus;
 import org.eclipse.iofog.status_reporter.StatusReporter;
 import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.functional.Pair;
@@ -67,7 +68,7 @@ public class ResourceConsumptionManager implements IOFogModule {
 	/**
 	 * computes IOFog resource usage data
 	 * and sets the {@link ResourceConsumptionManagerStatus}
-	 * removes old archives if disk usage goes more than limit 
+	 * disk usage of message archives and mailboxes is taken from message bus
 	 * 
 	 */
 	private Runnable getUsageData = () -> {
@@ -79,7 +80,7 @@ public class ResourceConsumptionManager implements IOFogModule {
 
 				float memoryUsage = getMemoryUsage();
 				float cpuUsage = getCpuUsage();
-				float diskUsage = directorySize(Configuration.getDiskDirectory() + "messages/archive/");
+				float diskUsage = MessageBus.getDiskUsage();
 
 				StatusReporter.setResourceConsumptionManagerStatus()
 						.setMemoryUsage(memoryUsage / 1_000_000)
@@ -88,48 +89,12 @@ public class ResourceConsumptionManager implements IOFogModule {
 						.setMemoryViolation(memoryUsage > memoryLimit)
 						.setDiskViolation(diskUsage > diskLimit)
 						.setCpuViolation(cpuUsage > cpuLimit);
-
-				if (diskUsage > diskLimit) {
-					float amount = diskUsage - (diskLimit * 0.75f);
-					removeArchives(amount);
-				}
 			} catch (Exception e) {
 			    logInfo("Error getting usage data : " + e.getMessage());
             }
 		}
 	};
 
-	/**
-	 * remove old archives
-	 * 
-	 * @param amount - disk space to be freed in bytes
-	 */
-	private void removeArchives(float amount) {
-		String archivesDirectory = Configuration.getDiskDirectory() + "messages/archive/";
-		
-		final File workingDirectory = new File(archivesDirectory);
-		File[] filesList = workingDirectory.listFiles((dir, fileName) ->
-				fileName.substring(fileName.indexOf(".")).equals(".idx"));
-
-		if (filesList != null) {
-			Arrays.sort(filesList, (o1, o2) -> {
-				String t1 = o1.getName().substring(o1.getName().indexOf('_') + 1, o1.getName().indexOf("."));
-				String t2 = o2.getName().substring(o2.getName().indexOf('_') + 1, o2.getName().indexOf("."));
-				return t1.compareTo(t2);
-			});
-
-			for (File indexFile : filesList) {
-				File dataFile = new File(archivesDirectory + indexFile.getName().substring(0, indexFile.getName().indexOf('.')) + ".iomsg");
-				amount -= indexFile.length();
-				indexFile.delete();
-				amount -= dataFile.length();
-				dataFile.delete();
-				if (amount < 0)
-					break;
-			}
-		}
-	}
-	
 	/**
 	 * gets memory usage of IOFog instance
 	 * 
@@ -214,28 +179,6 @@ public class ResourceConsumptionManager implements IOFogModule {
 				response.getValue().get(0);
 	}
 
-	/**
-	 * computes a directory size
-	 *
-	 * @param name - name of the directory
-	 * @return size in bytes
-	 */
-	private long directorySize(String name) {
-		File directory = new File(name);
-		if (!directory.exists())
-			return 0;
-		if (directory.isFile()) 
-			return directory.length();
-		long length = 0;
-		for (File file : directory.listFiles()) {
-			if (file.isFile())
-				length += file.length();
-			else if (file.isDirectory())
-				length += directorySize(file.getPath());
-		}
-		return length;
-	}
-
 	/**
 	 * updates limits when changes applied to {@link Configuration}
 	 * 
@@ -89,6 +89,9 @@ public final class StatusReporter {
 		result.append("\\nRunning Microservices       : ").append(processManagerStatus.getRunningMicroservicesCount());
 		result.append("\\nConnection to Controller    : ").append(connectionStatus);
 		result.append(String.format(Locale.US, "\\nMessages Processed          : about %,d", messageBusStatus.getProcessedMessages()));
+		result.append(String.format(Locale.US, "\\nMessage Rate (1s/10s/60s)   : %.1f / %.1f / %.1f msg/s",
+				messageBusStatus.getPublishedMessages().getRate1s(), messageBusStatus.getPublishedMessages().getRate10s(),
+				messageBusStatus.getPublishedMessages().getRate60s()));
 		result.append("\\nSystem Time                 : ").append(dateFormat.format(cal.getTime()));
 
 		return result.toString();
@@ -38,6 +38,7 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.net.NetworkInterface;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
@@ -87,6 +88,16 @@ public final class Configuration {
 	private static ArchitectureType fogType;
 	private static final Map<String, Object> defaultConfig;
 	private static boolean developerMode;
+	private static String messageBusEngine;
+	private static int archiveSegmentSize;
+	private static boolean archiveCompression;
+	private static int archiveMaxAge;
+	private static int archivePublisherLimit;
+	private static String archiveFsync;
+	private static long archiveFsyncIntervalMillis;
+	private static int archiveFsyncRecords;
+	private static String messageOverflow;
+	private static long messageTtl;
 
 	public static boolean debugging = false;
 
@@ -100,6 +111,9 @@ public final class Configuration {
 	private static String dockerApiVersion;
 	private static int setSystemTimeFreqSeconds;
 	private static int monitorSshTunnelStatusFreqSeconds;
+	private static int consumerWindowSizeBytes;
+	private static long archiveFlushIntervalMillis;
+	private static int archiveFlushSizeBytes;
 
 	private static void updateAutomaticConfigParams() {
 		switch (fogType) {
@@ -113,6 +127,9 @@ public final class Configuration {
 				dockerApiVersion = "1.23";
 				setSystemTimeFreqSeconds = 60;
 				monitorSshTunnelStatusFreqSeconds = 30;
+				consumerWindowSizeBytes = 256 * 1024;
+				archiveFlushIntervalMillis = 1000;
+				archiveFlushSizeBytes = 256 * 1024;
 				break;
 			case INTEL_AMD:
 				statusReportFreqSeconds = 5;
@@ -124,6 +141,9 @@ public final class Configuration {
 				dockerApiVersion = "1.23";
 				setSystemTimeFreqSeconds = 60;
 				monitorSshTunnelStatusFreqSeconds = 10;
+				consumerWindowSizeBytes = 1024 * 1024;
+				archiveFlushIntervalMillis = 500;
+				archiveFlushSizeBytes = 1024 * 1024;
 				break;
 		}
 	}
@@ -144,6 +164,18 @@ public final class Configuration {
 		return monitorSshTunnelStatusFreqSeconds;
 	}
 
+	public static int getConsumerWindowSizeBytes() {
+		return consumerWindowSizeBytes;
+	}
+
+	public static long getArchiveFlushIntervalMillis() {
+		return archiveFlushIntervalMillis;
+	}
+
+	public static int getArchiveFlushSizeBytes() {
+		return archiveFlushSizeBytes;
+	}
+
 	public static int getMonitorContainersStatusFreqSeconds() {
 		return monitorContainersStatusFreqSeconds;
 	}
@@ -245,6 +277,102 @@ public final class Configuration {
 		Configuration.developerMode = developerMode;
 	}
 
+	public static String getMessageBusEngine() {
+		return messageBusEngine;
+	}
+
+	public static void setMessageBusEngine(String messageBusEngine) {
+		Configuration.messageBusEngine = messageBusEngine;
+	}
+
+	public static int getArchiveSegmentSize() {
+		return archiveSegmentSize;
+	}
+
+	public static void setArchiveSegmentSize(int archiveSegmentSize) {
+		Configuration.archiveSegmentSize = archiveSegmentSize;
+	}
+
+	public static boolean isArchiveCompression() {
+		return archiveCompression;
+	}
+
+	public static void setArchiveCompression(boolean archiveCompression) {
+		Configuration.archiveCompression = archiveCompression;
+	}
+
+	public static int getArchiveMaxAge() {
+		return archiveMaxAge;
+	}
+
+	public static void setArchiveMaxAge(int archiveMaxAge) {
+		Configuration.archiveMaxAge = archiveMaxAge;
+	}
+
+	public static int getArchivePublisherLimit() {
+		return archivePublisherLimit;
+	}
+
+	public static void setArchivePublisherLimit(int archivePublisherLimit) {
+		Configuration.archivePublisherLimit = archivePublisherLimit;
+	}
+
+	public static String getArchiveFsync() {
+		return archiveFsync;
+	}
+
+	public static long getArchiveFsyncIntervalMillis() {
+		return archiveFsyncIntervalMillis;
+	}
+
+	public static int getArchiveFsyncRecords() {
+		return archiveFsyncRecords;
+	}
+
+	/**
+	 * sets policy of forcing archived messages to the disk
+	 * never, every #ms milliseconds or every #records records
+	 *
+	 * @param archiveFsync - policy
+	 * @return false if policy is invalid
+	 */
+	public static boolean setArchiveFsync(String archiveFsync) {
+		long intervalMillis = 0;
+		int records = 0;
+		try {
+			if (archiveFsync.endsWith("records"))
+				records = Integer.parseInt(archiveFsync.substring(0, archiveFsync.length() - "records".length()));
+			else if (archiveFsync.endsWith("ms"))
+				intervalMillis = Long.parseLong(archiveFsync.substring(0, archiveFsync.length() - "ms".length()));
+			else if (!archiveFsync.equals("never"))
+				return false;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		if (intervalMillis < 0 || records < 0 || (!archiveFsync.equals("never") && intervalMillis == 0 && records == 0))
+			return false;
+		Configuration.archiveFsync = archiveFsync;
+		Configuration.archiveFsyncIntervalMillis = intervalMillis;
+		Configuration.archiveFsyncRecords = records;
+		return true;
+	}
+
+	public static String getMessageOverflow() {
+		return messageOverflow;
+	}
+
+	public static void setMessageOverflow(String messageOverflow) {
+		Configuration.messageOverflow = messageOverflow;
+	}
+
+	public static long getMessageTtl() {
+		return messageTtl;
+	}
+
+	public static void setMessageTtl(long messageTtl) {
+		Configuration.messageTtl = messageTtl;
+	}
+
 	/**
 	 * return XML node value
 	 *
@@ -371,6 +499,7 @@ public final class Configuration {
 			}
 
 			int intValue;
+			long longValue;
 			switch (cmdOption) {
 				case DISK_CONSUMPTION_LIMIT:
 					try {
@@ -547,6 +676,93 @@ public final class Configuration {
 					setNode(DEV_MODE, value);
 					setDeveloperMode(!value.equals("off"));
 					break;
+				case MESSAGE_BUS_ENGINE:
+					if (!isValidMessageBusEngine(value)) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					setNode(MESSAGE_BUS_ENGINE, value);
+					setMessageBusEngine(value);
+					break;
+				case ARCHIVE_SEGMENT_SIZE:
+					try {
+						intValue = Integer.parseInt(value);
+					} catch (NumberFormatException e) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					if (intValue < 1 || intValue > 1024) {
+						messageMap.put(option, "Archive segment size must be between 1 and 1024 MB");
+						break;
+					}
+					setNode(ARCHIVE_SEGMENT_SIZE, value);
+					setArchiveSegmentSize(intValue);
+					break;
+				case ARCHIVE_COMPRESSION:
+					if (!"on".equals(value) && !"off".equals(value)) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					setNode(ARCHIVE_COMPRESSION, value);
+					setArchiveCompression(value.equals("on"));
+					break;
+				case ARCHIVE_MAX_AGE:
+					try {
+						intValue = Integer.parseInt(value);
+					} catch (NumberFormatException e) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					if (intValue < 0) {
+						messageMap.put(option, "Archive max age must be 0 or greater");
+						break;
+					}
+					setNode(ARCHIVE_MAX_AGE, value);
+					setArchiveMaxAge(intValue);
+					break;
+				case ARCHIVE_PUBLISHER_LIMIT:
+					try {
+						intValue = Integer.parseInt(value);
+					} catch (NumberFormatException e) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					if (intValue < 0) {
+						messageMap.put(option, "Archive limit per microservice must be 0 or greater");
+						break;
+					}
+					setNode(ARCHIVE_PUBLISHER_LIMIT, value);
+					setArchivePublisherLimit(intValue);
+					break;
+				case ARCHIVE_FSYNC:
+					if (!setArchiveFsync(value)) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					setNode(ARCHIVE_FSYNC, value);
+					break;
+				case MESSAGE_OVERFLOW:
+					if (!isValidMessageOverflow(value)) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					setNode(MESSAGE_OVERFLOW, value);
+					setMessageOverflow(value);
+					break;
+				case MESSAGE_TTL:
+					try {
+						longValue = Long.parseLong(value);
+					} catch (NumberFormatException e) {
+						messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+						break;
+					}
+					if (longValue < 0) {
+						messageMap.put(option, "Message TTL must be 0 or greater");
+						break;
+					}
+					setNode(MESSAGE_TTL, value);
+					setMessageTtl(longValue);
+					break;
 				default:
 					throw new ConfigurationItemException("Invalid parameter -" + option);
 			}
@@ -703,6 +919,41 @@ public final class Configuration {
 	}
 
 
+	/**
+	 * checks if value is a supported message bus engine
+	 *
+	 * @param value - value of message bus engine option
+	 * @return true if valid
+	 */
+	private static boolean isValidMessageBusEngine(String value) {
+		return MessageBus.HORNETQ_ENGINE.equals(value) || MessageBus.RING_BUFFER_ENGINE.equals(value);
+	}
+
+	/**
+	 * checks if value is a supported message overflow policy
+	 *
+	 * @param value - value of message overflow option
+	 * @return true if valid
+	 */
+	private static boolean isValidMessageOverflow(String value) {
+		return MessageBus.OVERFLOW_BACKPRESSURE.equals(value) || MessageBus.OVERFLOW_DROP.equals(value);
+	}
+
+	/**
+	 * returns value of config.xml node if valid, otherwise its default value
+	 *
+	 * @param param - {@link CommandLineConfigParam}
+	 * @param validator - checks value of node the way its command line option is checked
+	 * @return value to be used
+	 */
+	private static String getValidNode(CommandLineConfigParam param, Predicate<String> validator) {
+		String value = getNode(param);
+		if (validator.test(value))
+			return value;
+		logInfo(MODULE_NAME, "invalid value of " + param.getXmlTag() + ": " + value + ", using " + param.getDefaultValue());
+		return param.getDefaultValue();
+	}
+
 	/**
 	 * loads configuration from config.xml file
 	 *
@@ -738,6 +989,15 @@ public final class Configuration {
 		setWatchdogEnabled(!getNode(WATCHDOG_ENABLED).equals("off"));
 		configureFogType(getNode(FOG_TYPE));
 		setDeveloperMode(!getNode(DEV_MODE).equals("off"));
+		setMessageBusEngine(getValidNode(MESSAGE_BUS_ENGINE, Configuration::isValidMessageBusEngine));
+		setArchiveSegmentSize(Integer.parseInt(getNode(ARCHIVE_SEGMENT_SIZE)));
+		setArchiveCompression(getNode(ARCHIVE_COMPRESSION).equals("on"));
+		setArchiveMaxAge(Integer.parseInt(getNode(ARCHIVE_MAX_AGE)));
+		setArchivePublisherLimit(Integer.parseInt(getNode(ARCHIVE_PUBLISHER_LIMIT)));
+		if (!setArchiveFsync(getNode(ARCHIVE_FSYNC)))
+			setArchiveFsync(ARCHIVE_FSYNC.getDefaultValue());
+		setMessageOverflow(getValidNode(MESSAGE_OVERFLOW, Configuration::isValidMessageOverflow));
+		setMessageTtl(Long.parseLong(getNode(MESSAGE_TTL)));
 
 	}
 
@@ -926,6 +1186,21 @@ public final class Configuration {
 		result.append(buildReportLine(getConfigParamMessage(GPS_COORDINATES), gpsCoordinates));
 		//fog type
 		result.append(buildReportLine(getConfigParamMessage(FOG_TYPE), fogType.name().toLowerCase()));
+		// message bus engine
+		result.append(buildReportLine(getConfigParamMessage(MESSAGE_BUS_ENGINE), messageBusEngine));
+		// archive segment size
+		result.append(buildReportLine(getConfigParamMessage(ARCHIVE_SEGMENT_SIZE), format("%d MB", archiveSegmentSize)));
+		// archive compression
+		result.append(buildReportLine(getConfigParamMessage(ARCHIVE_COMPRESSION), (archiveCompression ? "on" : "off")));
+		// archive retention
+		result.append(buildReportLine(getConfigParamMessage(ARCHIVE_MAX_AGE), format("%d hours", archiveMaxAge)));
+		result.append(buildReportLine(getConfigParamMessage(ARCHIVE_PUBLISHER_LIMIT), format("%d MB", archivePublisherLimit)));
+		// archive fsync policy
+		result.append(buildReportLine(getConfigParamMessage(ARCHIVE_FSYNC), archiveFsync));
+		// message overflow policy
+		result.append(buildReportLine(getConfigParamMessage(MESSAGE_OVERFLOW), messageOverflow));
+		// message ttl
+		result.append(buildReportLine(getConfigParamMessage(MESSAGE_TTL), format("%d ms", messageTtl)));
 
 		return result.toString();
 	}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link QueryMessageReceiverHandler.MessagesInput} reading chunks ahead on an executor
+ *
+ */
+public class MessagesInputTest {
+	private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+	private final AtomicInteger resumed = new AtomicInteger();
+	private QueryMessageReceiverHandler.MessagesInput input;
+
+	@Before
+	public void setUp() {
+		Configuration.debugging = true;
+		input = new QueryMessageReceiverHandler.MessagesInput(Collections.emptyList(), Collections.emptyList(), 10, 20, 100,
+				UnpooledByteBufAllocator.DEFAULT, tasks::add, resumed::incrementAndGet);
+	}
+
+	@Test
+	public void returnsNullUntilChunkIsReadAhead() throws Exception {
+		assertNull(input.readChunk(UnpooledByteBufAllocator.DEFAULT));
+		assertFalse(input.isEndOfInput());
+		assertEquals(1, tasks.size());
+		// no second read is started while one is running
+		assertNull(input.readChunk(UnpooledByteBufAllocator.DEFAULT));
+		assertEquals(1, tasks.size());
+
+		tasks.poll().run();
+		assertEquals(1, resumed.get());
+		assertFalse(input.isEndOfInput());
+
+		ByteBuf chunk = input.readChunk(UnpooledByteBufAllocator.DEFAULT);
+		int size = chunk.readableBytes();
+		JsonObject response = Json.createReader(new StringReader(chunk.toString(UTF_8))).readObject();
+		chunk.release();
+		assertEquals("okay", response.getString("status"));
+		assertEquals(0, response.getInt("count"));
+		assertEquals(20, response.getInt("timeframeend"));
+		assertTrue(input.isEndOfInput());
+		assertTrue(tasks.isEmpty());
+		assertEquals(size, input.progress());
+	}
+
+	@Test
+	public void releasesChunkReadAfterClose() throws Exception {
+		assertNull(input.readChunk(UnpooledByteBufAllocator.DEFAULT));
+		input.close();
+		tasks.poll().run();
+
+		assertEquals(0, resumed.get());
+		assertTrue(input.isEndOfInput());
+		assertNull(input.readChunk(UnpooledByteBufAllocator.DEFAULT));
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.iofog.message_bus.MessageCodecBenchmark.EAGER_DECODE_JVM_ARGS;
+
+/**
+ * JMH benchmark of appending to and scanning {@link MessageArchive} of mapped {@link ArchiveSegment},
+ * randomAccess* benchmarks run the same operations with {@link RandomAccessArchive}, the layout it has replaced.
+ * every invocation appends or scans {@link #MESSAGES} messages, scores are messages per second
+ * run by main method from test classpath, e.g.
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.iofog.message_bus.ArchiveBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ArchiveBenchmark.MESSAGES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveBenchmark {
+	static final int MESSAGES = 10_000;
+
+	@Param({"256", "4096"})
+	public int contentSize;
+
+	private File directory;
+	private List<byte[]> messages;
+	private MessageArchive scanArchive;
+	private RandomAccessArchive randomAccessScanArchive;
+	private int nextArchive = 0;
+	private String appendName;
+	private MessageArchive appendArchive;
+	private RandomAccessArchive randomAccessAppendArchive;
+
+	@Setup
+	public void setUp() throws Exception {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(Files.createTempDirectory("iofog-benchmark").toString());
+		Configuration.setArchiveSegmentSize(16);
+		Configuration.setArchiveCompression(false);
+		Configuration.setArchiveFsync("never");
+		directory = new File(Configuration.getDiskDirectory());
+		messages = new ArrayList<>(MESSAGES);
+		for (int number = 1; number <= MESSAGES; number++)
+			messages.add(TestMessages.encoded("publisher", number, contentSize));
+
+		scanArchive = new MessageArchive("scan");
+		scanArchive.append(messages, 1);
+		scanArchive.flush();
+		randomAccessScanArchive = new RandomAccessArchive("scan", Configuration.getDiskDirectory() + "baseline/");
+		for (byte[] message : messages)
+			randomAccessScanArchive.save(message, MessageView.timestamp(message));
+		randomAccessScanArchive.close();
+	}
+
+	@TearDown
+	public void tearDown() {
+		scanArchive.closeFiles();
+		deleteFiles(directory);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpAppend() {
+		appendName = "append-" + nextArchive++;
+		appendArchive = new MessageArchive(appendName);
+		randomAccessAppendArchive = new RandomAccessArchive(appendName, Configuration.getDiskDirectory() + "baseline/");
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownAppend() {
+		appendArchive.closeFiles();
+		randomAccessAppendArchive.close();
+		for (File archiveDirectory : new File[] {new File(Configuration.getDiskDirectory() + "messages/archive/"),
+				new File(Configuration.getDiskDirectory() + "baseline/")}) {
+			File[] files = archiveDirectory.listFiles((dir, fileName) -> fileName.startsWith(appendName + "_"));
+			if (files != null)
+				for (File file : files)
+					file.delete();
+		}
+	}
+
+	private static void deleteFiles(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				deleteFiles(child);
+		file.delete();
+	}
+
+	@Benchmark
+	public long append() throws Exception {
+		long bytes = appendArchive.append(messages, 1);
+		appendArchive.flush();
+		return bytes;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = EAGER_DECODE_JVM_ARGS)
+	public void randomAccessAppend() throws Exception {
+		for (byte[] message : messages)
+			randomAccessAppendArchive.save(message, 1);
+	}
+
+	@Benchmark
+	public long scan() {
+		ArchiveCursor cursor = scanArchive.messageQuery(0, Long.MAX_VALUE, null, null);
+		long sum = 0;
+		while (cursor.hasNext())
+			sum += cursor.next().getTimestamp();
+		return sum;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = EAGER_DECODE_JVM_ARGS)
+	public long randomAccessScan() {
+		long sum = 0;
+		for (EagerMessage message : randomAccessScanArchive.messageQuery(0, Long.MAX_VALUE))
+			sum += message.getTimestamp();
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ArchiveBenchmark.class.getSimpleName()).build()).run();
+	}
+}
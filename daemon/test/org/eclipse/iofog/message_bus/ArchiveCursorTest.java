@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link ArchiveCursor} paging over {@link MessageArchive} segments
+ *
+ */
+public class ArchiveCursorTest {
+	private static final int MESSAGES = 10_000;
+	private static final int PAGE_SIZE = 1_500;
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpClass() {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(folder.getRoot().getAbsolutePath());
+		Configuration.setArchiveSegmentSize(1);
+	}
+
+	/**
+	 * archives messages with timestamps 1 to {@link #MESSAGES}, every third one tagged
+	 * content makes them span several segments and scan chunks
+	 *
+	 * @param name - name of the archive
+	 * @return {@link MessageArchive}
+	 * @throws Exception
+	 */
+	private static MessageArchive archive(String name) throws Exception {
+		MessageArchive archive = new MessageArchive(name);
+		List<byte[]> batch = new ArrayList<>();
+		for (int number = 1; number <= MESSAGES; number++) {
+			Message message = TestMessages.message(name, number, 256);
+			message.setTag(number % 3 == 0 ? "third" : "other");
+			batch.add(message.getBytes());
+			if (batch.size() == 100) {
+				archive.save(batch, number);
+				batch = new ArrayList<>();
+			}
+		}
+		return archive;
+	}
+
+	private static List<Long> timestamps(ArchiveCursor cursor, int limit) {
+		List<Long> result = new ArrayList<>();
+		while (result.size() < limit && cursor.hasNext())
+			result.add(cursor.next().getTimestamp());
+		return result;
+	}
+
+	@Test
+	public void pagesThroughAllMessagesInOrder() throws Exception {
+		MessageArchive archive = archive("paging");
+		try {
+			List<Long> result = new ArrayList<>();
+			String token = null;
+			int pages = 0;
+			do {
+				ArchiveCursor cursor = archive.messageQuery(0, Long.MAX_VALUE, null, token);
+				result.addAll(timestamps(cursor, PAGE_SIZE));
+				token = cursor.getContinuationToken();
+				pages++;
+			} while (token != null);
+
+			assertEquals((MESSAGES + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+			assertEquals(MESSAGES, result.size());
+			for (int index = 0; index < MESSAGES; index++)
+				assertEquals(index + 1, (long) result.get(index));
+			assertTrue(ArchiveCatalog.getInstance().getSegmentFiles("paging", 0, Long.MAX_VALUE).size() > 1);
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test
+	public void pagesWithinTimeFrameAndFilter() throws Exception {
+		MessageArchive archive = archive("filter");
+		try {
+			ArchiveFilter filter = new ArchiveFilter("third", null, null, null);
+			List<Long> result = new ArrayList<>();
+			String token = null;
+			do {
+				ArchiveCursor cursor = archive.messageQuery(2_500, 7_499, filter, token);
+				result.addAll(timestamps(cursor, 100));
+				token = cursor.getContinuationToken();
+			} while (token != null);
+
+			assertEquals(1_666, result.size());
+			assertEquals(2_502, (long) result.get(0));
+			assertEquals(7_497, (long) result.get(result.size() - 1));
+			for (int index = 1; index < result.size(); index++)
+				assertEquals(result.get(index - 1) + 3, (long) result.get(index));
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test
+	public void tokenOfExhaustedCursorIsNull() throws Exception {
+		MessageArchive archive = archive("exhausted");
+		try {
+			ArchiveCursor cursor = archive.messageQuery(MESSAGES, MESSAGES, null, null);
+			assertNotNull(cursor.getContinuationToken());
+			assertEquals(MESSAGES, cursor.next().getTimestamp());
+			assertFalse(cursor.hasNext());
+			assertNull(cursor.getContinuationToken());
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidToken() throws Exception {
+		MessageArchive archive = new MessageArchive("invalid");
+		try {
+			archive.messageQuery(0, Long.MAX_VALUE, null, "not a token");
+		} finally {
+			archive.close();
+		}
+	}
+}
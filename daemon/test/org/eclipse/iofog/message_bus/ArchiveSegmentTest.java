@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link ArchiveSegment} checksums and recovery of torn records
+ *
+ */
+public class ArchiveSegmentTest {
+	private static final int CAPACITY = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File indexFile;
+
+	@Before
+	public void setUp() {
+		indexFile = new File(folder.getRoot(), "segment.idx");
+	}
+
+	private static byte[] message(int number) {
+		return TestMessages.encoded("publisher", 1000 + number, 16 + number);
+	}
+
+	private static void append(ArchiveSegment segment, int from, int to) throws IOException {
+		for (int number = from; number < to; number++)
+			segment.append(message(number));
+	}
+
+	private void corruptLastDataByte() throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(ArchiveSegment.getDataFile(indexFile), "rw")) {
+			file.seek(file.length() - 1);
+			int value = file.read();
+			file.seek(file.length() - 1);
+			file.write(value ^ 0xFF);
+		}
+	}
+
+	private int readableRecords() throws IOException {
+		ArchiveSegment.Reader reader = new ArchiveSegment.Reader(indexFile, indexFile.length());
+		for (int record = 0; record < reader.size(); record++)
+			assertEquals(1000 + record, reader.getMessageView(record).getTimestamp());
+		return reader.size();
+	}
+
+	@Test
+	public void readsClosedSegment() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 100);
+		segment.close();
+
+		assertEquals(0, ArchiveSegment.recover(indexFile));
+		assertEquals(100, readableRecords());
+		Message last = new ArchiveSegment.Reader(indexFile, indexFile.length()).getMessageView(99).toMessage();
+		assertArrayEquals(TestMessages.message("publisher", 1099, 115).getContentData(), last.getContentData());
+	}
+
+	@Test
+	public void readerRejectsCorruptedRecord() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 3);
+		segment.close();
+		corruptLastDataByte();
+
+		ArchiveSegment.Reader reader = new ArchiveSegment.Reader(indexFile, indexFile.length());
+		reader.getMessageView(1);
+		try {
+			reader.getMessageView(2);
+			fail("corrupted record has been read");
+		} catch (IOException e) {
+			assertEquals("corrupted record", e.getMessage());
+		}
+	}
+
+	@Test
+	public void recoverTruncatesCorruptedTail() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 5);
+		segment.close();
+		long dataSize = ArchiveSegment.getDataFile(indexFile).length();
+		corruptLastDataByte();
+
+		assertEquals(1, ArchiveSegment.recover(indexFile));
+		assertEquals(4, readableRecords());
+		assertEquals(ArchiveSegment.FILE_HEADER_SIZE + 4 * ArchiveSegment.RECORD_SIZE, indexFile.length());
+		assertEquals(dataSize - (message(4).length - MessageView.HEADER_SIZE), ArchiveSegment.getDataFile(indexFile).length());
+		assertEquals(0, ArchiveSegment.recover(indexFile));
+	}
+
+	@Test
+	public void recoverTruncatesRecordWithMissingData() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 5);
+		segment.close();
+		File dataFile = ArchiveSegment.getDataFile(indexFile);
+		try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+			file.setLength(file.length() - 1);
+		}
+
+		assertEquals(1, ArchiveSegment.recover(indexFile));
+		assertEquals(4, readableRecords());
+	}
+
+	@Test
+	public void recoverVerifiesRecordsClosedWithoutSync() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 3);
+		segment.sync();
+		append(segment, 3, 5);
+		segment.close();
+		corruptLastDataByte();
+
+		assertEquals(1, ArchiveSegment.recover(indexFile));
+		assertEquals(4, readableRecords());
+	}
+
+	@Test
+	public void recoverSkipsSyncedRecords() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 5);
+		segment.sync();
+		segment.close();
+		corruptLastDataByte();
+
+		// records forced to the disk are trusted, the reader still rejects the corrupted one
+		assertEquals(0, ArchiveSegment.recover(indexFile));
+		assertEquals(5, new ArchiveSegment.Reader(indexFile, indexFile.length()).size());
+	}
+
+	@Test
+	public void resumeContinuesRecoveredSegment() throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(indexFile);
+		segment.create(CAPACITY);
+		append(segment, 0, 5);
+		segment.close();
+		corruptLastDataByte();
+		ArchiveSegment.recover(indexFile);
+
+		segment = new ArchiveSegment(indexFile);
+		assertTrue(segment.resume(CAPACITY));
+		assertEquals(4, segment.getRecords());
+		append(segment, 4, 70);
+		segment.close();
+
+		assertEquals(0, ArchiveSegment.recover(indexFile));
+		assertEquals(70, readableRecords());
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link HornetQEngine} and {@link RingBufferEngine} moving a message from publisher to receiver,
+ * latency gives percentiles of a single round trip and throughput gives messages per second
+ * of batches sent before they are received.
+ * run by main method from test classpath, e.g.
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.iofog.message_bus.EngineBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+	private static final int BATCH_SIZE = 64;
+
+	@Param({MessageBus.HORNETQ_ENGINE, MessageBus.RING_BUFFER_ENGINE})
+	public String engine;
+
+	@Param({"256"})
+	public int contentSize;
+
+	private MessageBusServer server;
+	private MessageBusEngine messageBusEngine;
+	private MessageBusProducer producer;
+	private MessageBusConsumer consumer;
+	private byte[] message;
+
+	@Setup
+	public void setUp() throws Exception {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(Files.createTempDirectory("iofog-benchmark").toString());
+		Configuration.setMemoryLimit(1000);
+		if (MessageBus.HORNETQ_ENGINE.equals(engine)) {
+			server = new MessageBusServer();
+			server.startServer();
+			server.initialize();
+			messageBusEngine = new HornetQEngine(server);
+		} else {
+			messageBusEngine = new RingBufferEngine();
+		}
+		messageBusEngine.createProducer("publisher");
+		consumer = messageBusEngine.getConsumer("publisher", "receiver");
+		producer = messageBusEngine.getProducer("publisher");
+		message = TestMessages.encoded("publisher", System.currentTimeMillis(), contentSize);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		messageBusEngine.close();
+		if (server != null)
+			server.stopServer();
+		deleteFiles(new File(Configuration.getDiskDirectory()));
+	}
+
+	private static void deleteFiles(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				deleteFiles(child);
+		file.delete();
+	}
+
+	private byte[] receive() throws Exception {
+		byte[] received;
+		while ((received = consumer.receive()) == null)
+			Thread.yield();
+		return received;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public byte[] latency() throws Exception {
+		producer.send(message);
+		return receive();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(BATCH_SIZE)
+	public byte[] throughput() throws Exception {
+		for (int index = 0; index < BATCH_SIZE; index++)
+			producer.send(message);
+		byte[] received = null;
+		for (int index = 0; index < BATCH_SIZE; index++)
+			received = receive();
+		return received;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EngineBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link HornetQEngine} sending single messages and batches on sharded sessions
+ *
+ */
+public class HornetQEngineTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static MessageBusServer server;
+	private static HornetQEngine engine;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(folder.getRoot().getAbsolutePath());
+		Configuration.setMemoryLimit(100);
+		server = new MessageBusServer();
+		server.startServer();
+		server.initialize();
+		engine = new HornetQEngine(server);
+	}
+
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		engine.close();
+		server.stopServer();
+	}
+
+	/**
+	 * receives timestamps of count messages, as delivery to the consumer is asynchronous
+	 *
+	 * @param consumer - {@link MessageBusConsumer}
+	 * @param count - number of expected messages
+	 * @return list of timestamps in order of receiving
+	 */
+	private static List<Long> receive(MessageBusConsumer consumer, int count) throws Exception {
+		List<Long> result = new ArrayList<>();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (result.size() < count && System.currentTimeMillis() < deadline) {
+			byte[] message = consumer.receive();
+			if (message == null)
+				Thread.sleep(10);
+			else
+				result.add(MessageView.timestamp(message));
+		}
+		return result;
+	}
+
+	@Test
+	public void keepsOrderOfSingleMessagesAndBatches() throws Exception {
+		engine.createProducer("ordered");
+		MessageBusConsumer consumer = engine.getConsumer("ordered", "receiver");
+		MessageBusProducer producer = engine.getProducer("ordered");
+
+		producer.send(TestMessages.encoded("ordered", 1, 16));
+		List<byte[]> batch = new ArrayList<>();
+		for (int number = 2; number <= 100; number++)
+			batch.add(TestMessages.encoded("ordered", number, 16));
+		producer.send(batch);
+		producer.send(TestMessages.encoded("ordered", 101, 16));
+
+		List<Long> received = receive(consumer, 101);
+		assertEquals(101, received.size());
+		for (int index = 0; index < received.size(); index++)
+			assertEquals(index + 1, (long) received.get(index));
+	}
+
+	@Test
+	public void deliversBatchToEveryReceiver() throws Exception {
+		engine.createProducer("fanout");
+		MessageBusConsumer first = engine.getConsumer("fanout", "first");
+		MessageBusConsumer second = engine.getConsumer("fanout", "second");
+		List<byte[]> batch = new ArrayList<>();
+		for (int number = 1; number <= 10; number++)
+			batch.add(TestMessages.encoded("fanout", number, 100));
+
+		engine.getProducer("fanout").send(batch);
+
+		assertEquals(10, receive(first, 10).size());
+		assertEquals(10, receive(second, 10).size());
+		assertTrue(engine.getProducer("fanout").getCredit() > 0);
+	}
+}
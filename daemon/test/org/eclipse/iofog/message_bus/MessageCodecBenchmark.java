@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JMH benchmark of {@link MessageView} codec and lazily decoded {@link Message},
+ * eager* benchmarks run the same operations with {@link EagerMessage}, the codec it has replaced
+ * run by main method from test classpath, e.g.
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.iofog.message_bus.MessageCodecBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+	// C2 of JDK 17.0.9 miscompiles the eager decoder once bytesToShort is inlined with copyOfRange,
+	// it reads wrong field lengths and fails after ~10^5 calls. keeping that call out of line costs the baseline a few ns
+	static final String EAGER_DECODE_JVM_ARGS = "-XX:CompileCommand=dontinline,org.eclipse.iofog.utils.BytesUtil::bytesToShort";
+
+	@Param({"64", "4096"})
+	public int contentSize;
+
+	private Message message;
+	private EagerMessage eagerMessage;
+	private byte[] encoded;
+	private ByteBuf buffer;
+	private final MessageView view = new MessageView();
+
+	@Setup
+	public void setUp() {
+		message = new Message("publisher-1");
+		message.setId("4pQ8Vd3xGmX2kLr7ZcH5nW");
+		message.setTag("tag");
+		message.setPriority((byte) 5);
+		message.setTimestamp(System.currentTimeMillis());
+		message.setInfoType("application/json");
+		message.setInfoFormat("utf-8");
+		message.setContextData("context".getBytes(UTF_8));
+		message.setContentData(new byte[contentSize]);
+		encoded = message.getBytes();
+		eagerMessage = new EagerMessage(encoded);
+		buffer = Unpooled.buffer(encoded.length * 2);
+	}
+
+	@Benchmark
+	public ByteBuf encodeIntoBuffer() {
+		buffer.clear();
+		MessageView.encode(message, buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] encodeToArray() {
+		return message.rawBytes();
+	}
+
+	@Benchmark
+	public long viewHeaderFields() {
+		view.wrap(Unpooled.wrappedBuffer(encoded), 0);
+		return view.getTimestamp() + view.getPriority() + view.getContentDataLength();
+	}
+
+	@Benchmark
+	public String decodeOneField() {
+		return new Message(encoded).getPublisher();
+	}
+
+	@Benchmark
+	public void decodeAllFields(Blackhole blackhole) {
+		Message decoded = new Message(encoded);
+		blackhole.consume(decoded.getId());
+		blackhole.consume(decoded.getTag());
+		blackhole.consume(decoded.getPriority());
+		blackhole.consume(decoded.getTimestamp());
+		blackhole.consume(decoded.getPublisher());
+		blackhole.consume(decoded.getInfoType());
+		blackhole.consume(decoded.getInfoFormat());
+		blackhole.consume(decoded.getContextData());
+		blackhole.consume(decoded.getContentData());
+	}
+
+	@Benchmark
+	public byte[] decodeAndForward() {
+		return new Message(encoded).rawBytes();
+	}
+
+	@Benchmark
+	public byte[] eagerEncodeToArray() {
+		return eagerMessage.getBytes();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = EAGER_DECODE_JVM_ARGS)
+	public String eagerDecodeOneField() {
+		return new EagerMessage(encoded).getPublisher();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = EAGER_DECODE_JVM_ARGS)
+	public void eagerDecodeAllFields(Blackhole blackhole) {
+		EagerMessage decoded = new EagerMessage(encoded);
+		blackhole.consume(decoded.getId());
+		blackhole.consume(decoded.getTag());
+		blackhole.consume(decoded.getPriority());
+		blackhole.consume(decoded.getTimestamp());
+		blackhole.consume(decoded.getPublisher());
+		blackhole.consume(decoded.getInfoType());
+		blackhole.consume(decoded.getInfoFormat());
+		blackhole.consume(decoded.getContextData());
+		blackhole.consume(decoded.getContentData());
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = EAGER_DECODE_JVM_ARGS)
+	public byte[] eagerDecodeAndForward() {
+		return new EagerMessage(encoded).getBytes();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MessageCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.microservice.Route;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link MessagePublisher} admitting batches within credit of its receivers
+ *
+ */
+public class MessagePublisherTest {
+	private static final int CONTENT_SIZE = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<List<byte[]>> sent = new ArrayList<>();
+	private long credit;
+	private MessagePublisher publisher;
+	private String name;
+
+	@Before
+	public void setUp() {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(folder.getRoot().getAbsolutePath());
+		Configuration.setArchiveSegmentSize(1);
+		Route route = new Route();
+		route.setReceivers(Collections.singletonList("receiver"));
+		name = "publisher-" + System.nanoTime();
+		publisher = new MessagePublisher(name, route, new MessageBusProducer() {
+			@Override
+			public void send(byte[] message) {
+				send(Collections.singletonList(message));
+			}
+
+			@Override
+			public void send(List<byte[]> messages) {
+				sent.add(new ArrayList<>(messages));
+				for (byte[] message : messages)
+					credit -= message.length;
+			}
+
+			@Override
+			public long getCredit() {
+				return credit;
+			}
+
+			@Override
+			public boolean isClosed() {
+				return false;
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		publisher.close();
+		Configuration.setMessageOverflow(MessageBus.OVERFLOW_DROP);
+	}
+
+	private List<Message> batch(int size) {
+		List<Message> batch = new ArrayList<>();
+		for (int number = 1; number <= size; number++)
+			batch.add(TestMessages.message(name, number, CONTENT_SIZE));
+		return batch;
+	}
+
+	private int archived() {
+		int count = 0;
+		ArchiveCursor cursor = publisher.messageQuery(0, Long.MAX_VALUE, null, null);
+		while (cursor.hasNext()) {
+			cursor.next();
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void sendsWholeBatchAtOnceWithinCredit() throws Exception {
+		credit = Long.MAX_VALUE;
+
+		assertEquals(10, publisher.publishBatch(batch(10)));
+		assertEquals(1, sent.size());
+		assertEquals(10, sent.get(0).size());
+		assertEquals(10, archived());
+	}
+
+	@Test
+	public void admitsPrefixWhenBackpressureIsEnabled() throws Exception {
+		Configuration.setMessageOverflow(MessageBus.OVERFLOW_BACKPRESSURE);
+		List<Message> batch = batch(10);
+		credit = 3 * batch.get(0).rawBytes().length + 10;
+
+		assertEquals(3, publisher.publishBatch(batch));
+		assertEquals(1, sent.size());
+		assertEquals(3, sent.get(0).size());
+		assertEquals(1, MessageView.timestamp(sent.get(0).get(0)));
+		// rest is left to publisher to retry, so it is not archived either
+		assertEquals(3, archived());
+
+		credit = 0;
+		assertEquals(0, publisher.publishBatch(batch.subList(3, 10)));
+		assertEquals(1, sent.size());
+	}
+
+	@Test
+	public void dropsRestWhenBackpressureIsDisabled() throws Exception {
+		Configuration.setMessageOverflow(MessageBus.OVERFLOW_DROP);
+		List<Message> batch = batch(10);
+		credit = 4 * batch.get(0).rawBytes().length;
+		long dropped = StatusReporter.getMessageBusStatus().getDroppedMessages().getCount();
+
+		assertEquals(10, publisher.publishBatch(batch));
+		assertEquals(4, sent.get(0).size());
+		assertEquals(6, StatusReporter.getMessageBusStatus().getDroppedMessages().getCount() - dropped);
+		assertEquals(10, archived());
+	}
+}
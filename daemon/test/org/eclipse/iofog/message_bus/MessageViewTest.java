@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * round trip tests of {@link MessageView} codec and lazily decoded {@link Message}
+ *
+ */
+public class MessageViewTest {
+
+	private static Message fullMessage() {
+		Message message = new Message("publisher-1");
+		message.setId("4pQ8Vd3xGmX2kLr7");
+		message.setTag("tag");
+		message.setMessageGroupId("group");
+		message.setSequenceNumber(3);
+		message.setSequenceTotal(7);
+		message.setPriority((byte) 5);
+		message.setTimestamp(1539772800123L);
+		message.setAuthIdentifier("auth");
+		message.setAuthGroup("authgroup");
+		message.setChainPosition(42L);
+		message.setHash("hash");
+		message.setPreviousHash("previous");
+		message.setNonce("nonce");
+		message.setDifficultyTarget(16);
+		message.setInfoType("text/plain");
+		message.setInfoFormat("utf-8");
+		message.setContextData("context".getBytes(UTF_8));
+		message.setContentData("content \u00e9\u4e2d".getBytes(UTF_8));
+		return message;
+	}
+
+	private static void assertSameFields(Message expected, Message actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTag(), actual.getTag());
+		assertEquals(expected.getMessageGroupId(), actual.getMessageGroupId());
+		assertEquals(expected.getSequenceNumber(), actual.getSequenceNumber());
+		assertEquals(expected.getSequenceTotal(), actual.getSequenceTotal());
+		assertEquals(expected.getPriority(), actual.getPriority());
+		assertEquals(expected.getTimestamp(), actual.getTimestamp());
+		assertEquals(expected.getPublisher(), actual.getPublisher());
+		assertEquals(expected.getAuthIdentifier(), actual.getAuthIdentifier());
+		assertEquals(expected.getAuthGroup(), actual.getAuthGroup());
+		assertEquals(expected.getChainPosition(), actual.getChainPosition());
+		assertEquals(expected.getHash(), actual.getHash());
+		assertEquals(expected.getPreviousHash(), actual.getPreviousHash());
+		assertEquals(expected.getNonce(), actual.getNonce());
+		assertEquals(expected.getDifficultyTarget(), actual.getDifficultyTarget());
+		assertEquals(expected.getInfoType(), actual.getInfoType());
+		assertEquals(expected.getInfoFormat(), actual.getInfoFormat());
+		assertArrayEquals(expected.getContextData(), actual.getContextData());
+		assertArrayEquals(expected.getContentData(), actual.getContentData());
+	}
+
+	@Test
+	public void roundTripsAllFields() {
+		Message message = fullMessage();
+		byte[] bytes = message.getBytes();
+
+		assertEquals(MessageView.encodedLength(message), bytes.length);
+		assertSameFields(message, new Message(bytes));
+	}
+
+	@Test
+	public void roundTripsEmptyMessage() {
+		Message message = new Message();
+		byte[] bytes = message.getBytes();
+
+		assertEquals(MessageView.HEADER_SIZE, bytes.length);
+		assertSameFields(message, new Message(bytes));
+	}
+
+	@Test
+	public void encodesShortStringsIntoExactlySizedBuffer() {
+		Message message = new Message("p");
+		message.setTag("\u00e9");
+		message.setInfoType("t");
+		int length = MessageView.encodedLength(message);
+		ByteBuf out = Unpooled.wrappedBuffer(new byte[length]).writerIndex(0);
+
+		assertEquals(length, MessageView.encode(message, out));
+		assertSameFields(message, new Message(out.array()));
+	}
+
+	@Test
+	public void viewReadsConsecutiveMessagesInPlace() {
+		Message first = fullMessage();
+		Message second = new Message("publisher-2");
+		second.setContentData(new byte[] {1, 2, 3});
+		ByteBuf buffer = Unpooled.buffer();
+		int firstLength = MessageView.encode(first, buffer);
+		MessageView.encode(second, buffer);
+
+		MessageView view = new MessageView().wrap(buffer, 0);
+		assertTrue(view.isSupportedVersion());
+		assertEquals(firstLength, view.getLength());
+		assertEquals(first.getPublisher(), view.getPublisher());
+		assertEquals(first.getTimestamp(), view.getTimestamp());
+		assertEquals(first.getContentData().length, view.getContentDataLength());
+
+		view.wrap(buffer, firstLength);
+		assertEquals(second.getPublisher(), view.getPublisher());
+		assertNull(view.getTag());
+		assertEquals(3, view.contentData().readableBytes());
+		assertEquals(view.getLength() - MessageView.HEADER_SIZE, MessageView.dataSize(buffer, firstLength));
+	}
+
+	@Test
+	public void viewBackedMessageKeepsModifiedFields() {
+		Message decoded = new Message(fullMessage().getBytes());
+		decoded.setTag("changed");
+		decoded.setContentData(null);
+
+		Message reencoded = new Message(decoded.getBytes());
+		assertEquals("changed", reencoded.getTag());
+		assertNull(reencoded.getContentData());
+		assertEquals(decoded.getPublisher(), reencoded.getPublisher());
+	}
+
+	@Test
+	public void encodesLikeEagerCodec() {
+		Message message = fullMessage();
+		byte[] bytes = message.getBytes();
+		EagerMessage eager = new EagerMessage(bytes);
+
+		assertArrayEquals(bytes, eager.getBytes());
+		assertEquals(message.getPublisher(), eager.getPublisher());
+		assertEquals(message.getTimestamp(), eager.getTimestamp());
+		assertArrayEquals(message.getContentData(), eager.getContentData());
+	}
+
+	@Test
+	public void getBytesReturnsCopy() {
+		byte[] bytes = fullMessage().getBytes();
+		Message message = new Message(bytes);
+
+		byte[] copy = message.getBytes();
+		assertNotSame(bytes, copy);
+		assertArrayEquals(bytes, copy);
+
+		copy[MessageView.HEADER_SIZE] ^= 0x7F;
+		assertArrayEquals(bytes, message.getBytes());
+	}
+
+	@Test
+	public void toleratesShortInput() {
+		Message message = new Message(new byte[] {0, 4, 1});
+		assertNull(message.getId());
+		assertNull(message.getContentData());
+
+		assertEquals(0, MessageView.priority(new byte[] {0, 4}));
+		assertEquals(0, MessageView.timestamp(null));
+	}
+
+	@Test
+	public void rejectsTruncatedMessage() {
+		byte[] bytes = fullMessage().getBytes();
+		byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+		try {
+			MessageView.wrap(truncated);
+			fail("truncated message has been wrapped");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().startsWith("invalid message"));
+		}
+		Message message = new Message(truncated);
+		assertNull(message.getPublisher());
+		assertNull(message.getContentData());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeFieldLength() {
+		byte[] bytes = fullMessage().getBytes();
+		// content data length is the last 4 bytes of the header
+		bytes[MessageView.HEADER_SIZE - 4] = (byte) 0x80;
+		new MessageView().wrap(Unpooled.wrappedBuffer(bytes), 0);
+	}
+
+	@Test
+	public void failedWrapKeepsPreviousMessage() {
+		Message first = fullMessage();
+		MessageView view = MessageView.wrap(first.getBytes());
+		try {
+			view.wrap(Unpooled.wrappedBuffer(new byte[MessageView.HEADER_SIZE - 1]), 0);
+			fail("short message has been wrapped");
+		} catch (IllegalArgumentException e) {
+			assertEquals(first.getPublisher(), view.getPublisher());
+		}
+	}
+
+	@Test
+	public void readsPriorityAndTimestampWithoutDecoding() {
+		byte[] bytes = fullMessage().getBytes();
+		assertEquals(5, MessageView.priority(bytes));
+		assertEquals(1539772800123L, MessageView.timestamp(bytes));
+
+		byte[] empty = new Message().getBytes();
+		assertEquals(0, MessageView.priority(empty));
+		assertEquals(0, MessageView.timestamp(empty));
+
+		// header promises a timestamp which was cut off
+		byte[] truncated = new byte[MessageView.HEADER_SIZE + 10];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		assertEquals(0, MessageView.timestamp(truncated));
+	}
+
+	@Test
+	public void base64RoundTrip() {
+		Message message = fullMessage();
+		Message decoded = new Message();
+		decoded.decodeBase64(message.encodeBase64());
+		assertSameFields(message, decoded);
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests of {@link ReceiverMailbox} spilling to the disk, reading back in order, priority lanes and flow control
+ *
+ */
+public class ReceiverMailboxTest {
+	private static final int MESSAGE_SIZE = 10_000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AtomicInteger flowControlCalls = new AtomicInteger();
+	private ReceiverMailbox mailbox;
+	private File directory;
+
+	@Before
+	public void setUp() {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(folder.getRoot().getAbsolutePath());
+		Configuration.setMemoryLimit(100);
+		Configuration.setDiskLimit(1);
+		Configuration.setMessageTtl(0);
+		mailbox = new ReceiverMailbox("receiver", flowControlCalls::incrementAndGet);
+		directory = new File(Configuration.getDiskDirectory() + "messages/mailbox/receiver");
+	}
+
+	@After
+	public void tearDown() {
+		mailbox.close();
+		assertEquals(0, ReceiverMailbox.getTotalDiskBytes());
+	}
+
+	private static byte[] message(int number) {
+		return TestMessages.encoded("publisher", number, MESSAGE_SIZE);
+	}
+
+	private static byte[] message(int number, int priority) {
+		Message message = TestMessages.message("publisher", number, MESSAGE_SIZE);
+		message.setPriority((byte) priority);
+		return message.getBytes();
+	}
+
+	private void add(int from, int to) {
+		for (int number = from; number < to; number++)
+			mailbox.onMessage(message(number));
+	}
+
+	private List<Long> drainAll() {
+		List<Long> result = new ArrayList<>();
+		List<byte[]> messages;
+		while (!(messages = mailbox.drain(Integer.MAX_VALUE)).isEmpty())
+			for (byte[] message : messages)
+				result.add(MessageView.timestamp(message));
+		return result;
+	}
+
+	private static void assertSequence(List<Long> timestamps, int from, int to) {
+		assertEquals(to - from, timestamps.size());
+		for (int index = 0; index < timestamps.size(); index++)
+			assertEquals(from + index, (long) timestamps.get(index));
+	}
+
+	@Test
+	public void keepsMessagesInMemoryUpToLimit() {
+		add(0, 100);
+
+		assertFalse(directory.exists() && directory.list().length > 0);
+		assertSequence(drainAll(), 0, 100);
+	}
+
+	@Test
+	public void spillsAndReadsBackInOrder() {
+		// three times the memory limit of a mailbox, spilled into more than one segment
+		int count = (int) (3 * ReceiverMailbox.MEMORY_LIMIT / MESSAGE_SIZE);
+		add(0, count);
+
+		assertTrue(directory.list().length > 3);
+		assertTrue(ReceiverMailbox.getTotalDiskBytes() > 0);
+		assertFalse(mailbox.isPaused());
+
+		assertSequence(drainAll(), 0, count);
+		assertEquals(0, directory.list().length);
+		assertEquals(0, ReceiverMailbox.getTotalDiskBytes());
+	}
+
+	@Test
+	public void keepsOrderWhileBacklogIsReadAndAppended() {
+		int count = (int) (2 * ReceiverMailbox.MEMORY_LIMIT / MESSAGE_SIZE);
+		add(0, count);
+		List<Long> result = new ArrayList<>();
+		for (byte[] message : mailbox.drain(count / 2 + 10))
+			result.add(MessageView.timestamp(message));
+		add(count, 2 * count);
+		result.addAll(drainAll());
+
+		assertSequence(result, 0, 2 * count);
+	}
+
+	@Test
+	public void pausesWhenDiskShareIsFull() {
+		// disk share is smaller than a mailbox segment, so nothing can be spilled
+		Configuration.setDiskLimit(0.001f);
+		int count = (int) (ReceiverMailbox.MEMORY_LIMIT / MESSAGE_SIZE) + 10;
+		add(0, count);
+
+		assertTrue(mailbox.isPaused());
+		assertEquals(1, flowControlCalls.get());
+		assertEquals(0, ReceiverMailbox.getTotalDiskBytes());
+
+		assertSequence(drainAll(), 0, count);
+		assertFalse(mailbox.isPaused());
+		assertEquals(2, flowControlCalls.get());
+	}
+
+	@Test
+	public void forwardsBacklogAsTargetHasRoom() {
+		int count = (int) (2 * ReceiverMailbox.MEMORY_LIMIT / MESSAGE_SIZE);
+		add(0, count);
+		List<Long> received = new ArrayList<>();
+		AtomicInteger room = new AtomicInteger(100);
+		MessageListener target = new MessageListener() {
+			@Override
+			public void onMessage(byte[] message) {
+				received.add(MessageView.timestamp(message));
+				room.decrementAndGet();
+			}
+
+			@Override
+			public int getRoom() {
+				return room.get();
+			}
+		};
+
+		mailbox.setTarget(target);
+		assertEquals(100, received.size());
+
+		room.set(Integer.MAX_VALUE);
+		mailbox.forward();
+		add(count, count + 10);
+
+		assertSequence(received, 0, count + 10);
+		assertEquals(0, ReceiverMailbox.getTotalDiskBytes());
+	}
+
+	@Test
+	public void drainsHigherPriorityLanesFirst() {
+		mailbox.onMessage(message(0, 4));
+		mailbox.onMessage(message(1, 0));
+		mailbox.onMessage(message(2, 2));
+		mailbox.onMessage(message(3, 1));
+		mailbox.onMessage(message(4, 2));
+
+		assertEquals(Arrays.asList(3L, 2L, 4L, 1L, 0L), drainAll());
+	}
+
+	@Test
+	public void keepsPriorityOfSpilledMessages() {
+		// default lane is spilled to the disk before the high priority messages arrive
+		int count = (int) (2 * ReceiverMailbox.MEMORY_LIMIT / MESSAGE_SIZE);
+		add(0, count);
+		for (int number = count; number < count + 10; number++)
+			mailbox.onMessage(message(number, 1));
+
+		List<Long> result = drainAll();
+
+		assertSequence(result.subList(0, 10), count, count + 10);
+		assertSequence(result.subList(10, result.size()), 0, count);
+	}
+
+	@Test
+	public void servesStarvedLaneWithinLimit() {
+		int count = 10 * PriorityLanes.STARVATION_LIMIT;
+		for (int number = 0; number < count; number++)
+			mailbox.onMessage(message(number, 1));
+		mailbox.onMessage(message(count, 4));
+
+		List<Long> result = drainAll();
+
+		assertEquals(count + 1, result.size());
+		assertEquals(PriorityLanes.STARVATION_LIMIT, result.indexOf((long) count));
+	}
+}
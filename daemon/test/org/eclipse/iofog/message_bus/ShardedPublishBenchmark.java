@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH benchmark of concurrent publishers sending to {@link HornetQEngine}, whose sessions are sharded by publisher
+ * every publisher runs on its own thread and has one receiver taking its messages as they arrive.
+ * main method runs it with as many threads as publishers, e.g.
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.iofog.message_bus.ShardedPublishBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ShardedPublishBenchmark {
+	private static final int[] PUBLISHERS = {1, 4, 16};
+
+	@Param({"1", "4", "16"})
+	public int publishers;
+
+	@Param({"256"})
+	public int contentSize;
+
+	private MessageBusServer server;
+	private HornetQEngine engine;
+	private final AtomicInteger nextPublisher = new AtomicInteger();
+	private final AtomicLong received = new AtomicLong();
+
+	@Setup
+	public void setUp() throws Exception {
+		Configuration.debugging = true;
+		Configuration.setDiskDirectory(Files.createTempDirectory("iofog-benchmark").toString());
+		Configuration.setMemoryLimit(1000);
+		server = new MessageBusServer();
+		server.startServer();
+		server.initialize();
+		engine = new HornetQEngine(server);
+		MessageListener receiver = new MessageListener() {
+			@Override
+			public void onMessage(byte[] message) {
+				received.incrementAndGet();
+			}
+		};
+		for (int index = 0; index < publishers; index++) {
+			engine.createProducer(getPublisher(index));
+			engine.getConsumer(getPublisher(index), "receiver-" + index).setListener(receiver);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		engine.close();
+		server.stopServer();
+		deleteFiles(new File(Configuration.getDiskDirectory()));
+	}
+
+	private static String getPublisher(int index) {
+		return "publisher-" + index;
+	}
+
+	private static void deleteFiles(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				deleteFiles(child);
+		file.delete();
+	}
+
+	/**
+	 * publisher of a benchmark thread, threads share publishers if there are more threads than publishers
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Publisher {
+		MessageBusProducer producer;
+		byte[] message;
+
+		@Setup
+		public void setUp(ShardedPublishBenchmark benchmark) {
+			String name = getPublisher(benchmark.nextPublisher.getAndIncrement() % benchmark.publishers);
+			producer = benchmark.engine.getProducer(name);
+			message = TestMessages.encoded(name, System.currentTimeMillis(), benchmark.contentSize);
+		}
+	}
+
+	@Benchmark
+	public void send(Publisher publisher) throws Exception {
+		publisher.producer.send(publisher.message);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int publishers : PUBLISHERS)
+			new Runner(new OptionsBuilder()
+					.include(ShardedPublishBenchmark.class.getSimpleName())
+					.param("publishers", String.valueOf(publishers))
+					.threads(publishers)
+					.build()).run();
+	}
+}
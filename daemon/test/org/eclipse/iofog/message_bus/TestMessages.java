@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Edgeworx, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Saeid Baghbidi
+ * Kilton Hopkins
+ *  Ashita Nagar
+ *******************************************************************************/
+package org.eclipse.iofog.message_bus;
+
+import java.util.Arrays;
+
+/**
+ * {@link Message} fixtures shared by message bus tests
+ *
+ */
+final class TestMessages {
+
+	private TestMessages() {
+	}
+
+	/**
+	 * creates {@link Message} whose content is filled by the low byte of its timestamp,
+	 * so records read back can be matched to the message they were written from
+	 *
+	 * @param publisher - ID of publisher
+	 * @param timestamp - timestamp of the {@link Message}
+	 * @param contentSize - size of content data
+	 * @return {@link Message}
+	 */
+	static Message message(String publisher, long timestamp, int contentSize) {
+		Message message = new Message(publisher);
+		message.setTimestamp(timestamp);
+		byte[] content = new byte[contentSize];
+		Arrays.fill(content, (byte) timestamp);
+		message.setContentData(content);
+		return message;
+	}
+
+	/**
+	 * creates encoded {@link Message}, see {@link #message(String, long, int)}
+	 *
+	 * @param publisher - ID of publisher
+	 * @param timestamp - timestamp of the {@link Message}
+	 * @param contentSize - size of content data
+	 * @return encoded {@link Message}
+	 */
+	static byte[] encoded(String publisher, long timestamp, int contentSize) {
+		return message(publisher, timestamp, contentSize).getBytes();
+	}
+}